@@ -0,0 +1,282 @@
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Measures the average time and allocation of an operation, in the style of a JMH average time benchmark
+ * with the gc profiler.
+ * Every benchmark runs a number of warmup iterations, whose results are dropped, and then a number of measured
+ * iterations of a fixed length. Each iteration calls the operation in batches, so reading the clock does not add
+ * to the time of short operations, and the result of every call is kept so the JIT cannot drop the call.
+ * Allocation is read from the thread allocation counter of the JVM, so work done by other threads is not counted.
+ */
+public class Benchmark {
+    private static final long MIN_BATCH_NANOS = 1_000_000;  // Shortest batch, a batch grows until it is this long
+
+    private static volatile Object sink;  // Keeps the results of the operations alive
+    private static volatile int intSink;
+
+    private final int warmupIterations;
+    private final int measurementIterations;
+    private final long iterationNanos;
+    private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    private final List<GarbageCollectorMXBean> collectorBeans = ManagementFactory.getGarbageCollectorMXBeans();
+
+    /**
+     * Constructs a Benchmark.
+     *
+     * @param warmupIterations number of iterations run before measuring, at least 0
+     * @param measurementIterations number of measured iterations, at least 1
+     * @param iterationMillis length of every iteration in milliseconds, at least 1
+     * @throws IllegalArgumentException if an argument is out of range
+     */
+    public Benchmark(int warmupIterations, int measurementIterations, long iterationMillis) {
+        if (warmupIterations < 0) {
+            throw new IllegalArgumentException("Negative number of warmup iterations: " + warmupIterations);
+        }
+        if (measurementIterations < 1) {
+            throw new IllegalArgumentException("Number of iterations must be positive: " + measurementIterations);
+        }
+        if (iterationMillis < 1) {
+            throw new IllegalArgumentException("Iteration time must be positive: " + iterationMillis);
+        }
+        this.warmupIterations = warmupIterations;
+        this.measurementIterations = measurementIterations;
+        this.iterationNanos = iterationMillis * 1_000_000;
+    }
+
+    /**
+     * Runs a benchmark.
+     *
+     * @param name name of the benchmark
+     * @param operation the operation to measure, called many times
+     * @return the measured results
+     */
+    public Result run(String name, Supplier<?> operation) {
+        return measure(name, calls -> {
+            for (int i = 0; i < calls; i++) {
+                sink = operation.get();
+            }
+        });
+    }
+
+    /**
+     * Runs a benchmark of an operation with a primitive result, which is not boxed.
+     *
+     * @param name name of the benchmark
+     * @param operation the operation to measure, called many times
+     * @return the measured results
+     */
+    public Result run(String name, IntSupplier operation) {
+        return measure(name, calls -> {
+            int sum = 0;
+            for (int i = 0; i < calls; i++) {
+                sum += operation.getAsInt();
+            }
+            intSink = sum;
+        });
+    }
+
+    /**
+     * Runs the warmup and measured iterations of a benchmark.
+     *
+     * @param name name of the benchmark
+     * @param operation calls the measured operation a given number of times
+     * @return the measured results
+     */
+    private Result measure(String name, Batch operation) {
+        int batch = calibrate(operation);
+        for (int i = 0; i < warmupIterations; i++) {
+            iteration(operation, batch);
+        }
+        double[] nanosPerOperation = new double[measurementIterations];
+        long operations = 0;
+        long allocatedBytes = 0;
+        long collections = 0;
+        long collectionMillis = 0;
+        for (int i = 0; i < measurementIterations; i++) {
+            long[] measured = iteration(operation, batch);
+            nanosPerOperation[i] = (double) measured[0] / measured[1];
+            operations += measured[1];
+            allocatedBytes += measured[2];
+            collections += measured[3];
+            collectionMillis += measured[4];
+        }
+        return new Result(name, nanosPerOperation, operations, allocatedBytes, collections, collectionMillis);
+    }
+
+    /**
+     * Finds a batch size whose calls take at least MIN_BATCH_NANOS, by doubling it.
+     *
+     * @param operation the operation
+     * @return batch size
+     */
+    private int calibrate(Batch operation) {
+        int batch = 1;
+        while (batch < 1 << 30) {
+            long start = System.nanoTime();
+            operation.call(batch);
+            if (System.nanoTime() - start >= MIN_BATCH_NANOS) {
+                break;
+            }
+            batch *= 2;
+        }
+        return batch;
+    }
+
+    /**
+     * Runs a single iteration: batches of calls until the iteration time passed.
+     *
+     * @param operation the operation
+     * @param batch number of calls between readings of the clock
+     * @return elapsed nanoseconds, number of calls, allocated bytes, garbage collections and collection milliseconds
+     */
+    private long[] iteration(Batch operation, int batch) {
+        long collectionsBefore = collections();
+        long collectionMillisBefore = collectionMillis();
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+        long elapsed;
+        long calls = 0;
+        do {
+            operation.call(batch);
+            calls += batch;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < iterationNanos);
+        long allocated = allocatedBytes() - allocatedBefore;
+        return new long[] {elapsed, calls, allocated, collections() - collectionsBefore,
+                collectionMillis() - collectionMillisBefore};
+    }
+
+    /**
+     * Returns the number of bytes allocated by the current thread so far.
+     *
+     * @return allocated bytes, or 0 if the JVM does not count them
+     */
+    private long allocatedBytes() {
+        if (threadBean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threadBean).getCurrentThreadAllocatedBytes();
+        }
+        return 0;
+    }
+
+    private long collections() {
+        long count = 0;
+        for (GarbageCollectorMXBean bean : collectorBeans) {
+            count += Math.max(bean.getCollectionCount(), 0);
+        }
+        return count;
+    }
+
+    private long collectionMillis() {
+        long time = 0;
+        for (GarbageCollectorMXBean bean : collectorBeans) {
+            time += Math.max(bean.getCollectionTime(), 0);
+        }
+        return time;
+    }
+
+    /** Calls the measured operation in a loop, so the loop is compiled together with the operation. */
+    private interface Batch {
+        /**
+         * Calls the operation.
+         *
+         * @param calls number of calls
+         */
+        void call(int calls);
+    }
+
+    /** The results of a benchmark. */
+    public static class Result {
+        private final String name;
+        private final double[] nanosPerOperation;  // Average of every measured iteration
+        private final long operations;
+        private final long allocatedBytes;
+        private final long collections;
+        private final long collectionMillis;
+
+        /**
+         * Constructs a Result.
+         *
+         * @param name name of the benchmark
+         * @param nanosPerOperation average nanoseconds per operation of every measured iteration
+         * @param operations number of measured operations
+         * @param allocatedBytes bytes allocated by the measured operations
+         * @param collections number of garbage collections during the measured iterations
+         * @param collectionMillis milliseconds spent in those collections
+         */
+        public Result(String name, double[] nanosPerOperation, long operations, long allocatedBytes,
+                long collections, long collectionMillis) {
+            this.name = name;
+            this.nanosPerOperation = nanosPerOperation.clone();
+            this.operations = operations;
+            this.allocatedBytes = allocatedBytes;
+            this.collections = collections;
+            this.collectionMillis = collectionMillis;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Returns the average time of an operation, over the measured iterations.
+         *
+         * @return nanoseconds per operation
+         */
+        public double getScore() {
+            double sum = 0;
+            for (double value : nanosPerOperation) {
+                sum += value;
+            }
+            return sum / nanosPerOperation.length;
+        }
+
+        /**
+         * Returns the standard deviation of the time of an operation between the measured iterations.
+         *
+         * @return nanoseconds per operation
+         */
+        public double getError() {
+            if (nanosPerOperation.length < 2) {
+                return Double.NaN;
+            }
+            double mean = getScore();
+            double squares = 0;
+            for (double value : nanosPerOperation) {
+                squares += (value - mean) * (value - mean);
+            }
+            return Math.sqrt(squares / (nanosPerOperation.length - 1));
+        }
+
+        public long getOperations() {
+            return operations;
+        }
+
+        /**
+         * Returns the average number of bytes allocated by an operation.
+         *
+         * @return bytes per operation
+         */
+        public double getAllocatedBytesPerOperation() {
+            return (double) allocatedBytes / operations;
+        }
+
+        public long getCollections() {
+            return collections;
+        }
+
+        public long getCollectionMillis() {
+            return collectionMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-40s %14.1f %12.1f  ns/op %14.1f %9d %9d",
+                    name, getScore(), getError(), getAllocatedBytesPerOperation(), collections, collectionMillis);
+        }
+    }
+}
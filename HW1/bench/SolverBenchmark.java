@@ -0,0 +1,183 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Benchmarks of the puzzle solver: microbenchmarks of the board and state operations, and whole searches over a
+ * seeded corpus of boards grouped by size and difficulty.
+ * The corpus is generated from a fixed seed, so every run measures the same boards.
+ * <p>
+ * Compile and run from the HW1 directory, with a fixed heap so the garbage collector behaves the same in every run:
+ * <pre>
+ * javac -d out src/*.java bench/*.java
+ * java -Xms2g -Xmx2g -cp out SolverBenchmark [name regex] [strategy]
+ * </pre>
+ * Only benchmarks whose name matches the regex are run (default all), and the searches use the given strategy
+ * (default A_STAR).
+ */
+public class SolverBenchmark {
+    private static final long SEED = 20230415L;
+    private static final int BOARDS_PER_GROUP = 8;
+    private static final int[] SIZES = {3, 4, 5};
+    private static final int[] SCRAMBLE_MOVES = {16, 32, 48};  // Random moves of the easy, medium and hard boards
+    private static final String[] DIFFICULTIES = {"easy", "medium", "hard"};
+    private static final String MICRO_BOARD = "1 6 4 15|5 10 _ 13|9 11 3 7|12 8 2 14";
+    private static final int WARMUP_ITERATIONS = 3;
+    private static final int MEASUREMENT_ITERATIONS = 5;
+    private static final long ITERATION_MILLIS = 1000;
+    private static final Heuristic MANHATTAN = new ManhattanHeuristic();
+    private static final Heuristic LINEAR_CONFLICT = new LinearConflictHeuristic();
+    private static final Heuristic WALKING_DISTANCE = new WalkingDistanceHeuristic();
+
+    // Inputs of the microbenchmarks, volatile so the JIT reads them on every call instead of hoisting the call
+    private static volatile Board board;
+    private static volatile Board equalBoard;
+    private static volatile State state;
+    private static volatile Action action;
+    private static volatile Board child;  // The board after the action
+    private static volatile int childParentValue;  // Heuristic value of board, used by the incremental evaluations
+
+    public static void main(String[] args) {
+        Pattern filter = Pattern.compile(args.length > 0 ? args[0] : ".*");
+        Search.Strategy strategy = args.length > 1 ? Search.Strategy.valueOf(args[1]) : Search.Strategy.A_STAR;
+        Benchmark benchmark = new Benchmark(WARMUP_ITERATIONS, MEASUREMENT_ITERATIONS, ITERATION_MILLIS);
+        System.out.println(String.format("%-40s %14s %12s %6s %14s %9s %9s", "Benchmark", "Score", "Error", "Units",
+                "B/op", "gc.count", "gc.time"));
+
+        board = new Board(MICRO_BOARD);
+        equalBoard = new Board(board);
+        state = new State(board);
+        action = state.actions()[0];
+        child = state.result(action).getBoard();
+        childParentValue = LINEAR_CONFLICT.evaluate(board);
+        run(benchmark, filter, "board.parse", () -> new Board(MICRO_BOARD));
+        run(benchmark, filter, "board.copy", () -> new Board(board));
+        runInt(benchmark, filter, "heuristic.manhattan", () -> MANHATTAN.evaluate(board));
+        runInt(benchmark, filter, "heuristic.manhattan.incremental",
+                () -> MANHATTAN.evaluate(board, child, childParentValue));
+        runInt(benchmark, filter, "heuristic.linearConflict", () -> LINEAR_CONFLICT.evaluate(board));
+        runInt(benchmark, filter, "heuristic.linearConflict.incremental",
+                () -> LINEAR_CONFLICT.evaluate(board, child, childParentValue));
+        runInt(benchmark, filter, "heuristic.walkingDistance", () -> WALKING_DISTANCE.evaluate(board));
+        runInt(benchmark, filter, "board.hashCode", () -> board.hashCode());
+        runInt(benchmark, filter, "board.equals", () -> board.equals(equalBoard) ? 1 : 0);
+        run(benchmark, filter, "state.actions", () -> state.actions());
+        run(benchmark, filter, "state.result", () -> state.result(action));
+
+        for (int size : SIZES) {
+            for (int difficulty = 0; difficulty < DIFFICULTIES.length; difficulty++) {
+                String name = "search." + strategy.name().toLowerCase() + "." + size + "x" + size + "."
+                        + DIFFICULTIES[difficulty];
+                if (!filter.matcher(name).matches()) {
+                    continue;
+                }
+                List<String> corpus = corpus(size, SCRAMBLE_MOVES[difficulty]);
+                run(benchmark, filter, name, () -> solveAll(corpus, strategy));
+            }
+        }
+    }
+
+    /**
+     * Runs a benchmark and prints its results, if its name matches the filter.
+     *
+     * @param benchmark the benchmark settings
+     * @param filter regex of the benchmarks to run
+     * @param name name of the benchmark
+     * @param operation the measured operation
+     */
+    private static void run(Benchmark benchmark, Pattern filter, String name, Supplier<?> operation) {
+        if (filter.matcher(name).matches()) {
+            System.out.println(benchmark.run(name, operation));
+        }
+    }
+
+    /**
+     * Runs a benchmark of an operation with a primitive result and prints its results, if its name matches the filter.
+     *
+     * @param benchmark the benchmark settings
+     * @param filter regex of the benchmarks to run
+     * @param name name of the benchmark
+     * @param operation the measured operation
+     */
+    private static void runInt(Benchmark benchmark, Pattern filter, String name,
+            IntSupplier operation) {
+        if (filter.matcher(name).matches()) {
+            System.out.println(benchmark.run(name, operation));
+        }
+    }
+
+    /**
+     * Solves every board of a corpus.
+     *
+     * @param corpus the boards
+     * @param strategy the search algorithm to use
+     * @return total length of the solutions, so the searches cannot be optimized away
+     * @throws IllegalStateException if a board was not solved, which would make the numbers meaningless
+     */
+    private static Integer solveAll(List<String> corpus, Search.Strategy strategy) {
+        int length = 0;
+        for (String boardString : corpus) {
+            Search search = new Search();
+            List<Action> solution = search.search(boardString, strategy);
+            if (search.getStatus() != Search.Status.SOLVED) {
+                throw new IllegalStateException("Board " + boardString + " ended with status " + search.getStatus());
+            }
+            length += solution.size();
+        }
+        return length;
+    }
+
+    /**
+     * Generates the boards of a corpus group by scrambling the goal board with random moves.
+     * A move never undoes the move before it.
+     *
+     * @param size number of rows and columns
+     * @param moves number of random moves per board
+     * @return board strings
+     */
+    private static List<String> corpus(int size, int moves) {
+        Random random = new Random(SEED + size * 1000L + moves);
+        Geometry geometry = Geometry.of(size, size);
+        List<String> boards = new ArrayList<>(BOARDS_PER_GROUP);
+        for (int i = 0; i < BOARDS_PER_GROUP; i++) {
+            Board board = new Board(geometry);
+            int previousMove = -1;
+            for (int j = 0; j < moves; j++) {
+                int move;
+                do {
+                    move = random.nextInt(4);
+                } while (!board.canSlide(move) || (previousMove >= 0 && move == Direction.opposite(previousMove)));
+                board.slide(move);
+                previousMove = move;
+            }
+            boards.add(boardString(board));
+        }
+        return boards;
+    }
+
+    /**
+     * Formats a board the way the Board constructor parses it.
+     *
+     * @param board the board
+     * @return board string, rows separated by '|' and the empty tile written as '_'
+     */
+    private static String boardString(Board board) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < board.getRows(); i++) {
+            if (i > 0) {
+                builder.append('|');
+            }
+            for (int j = 0; j < board.getColumns(); j++) {
+                if (j > 0) {
+                    builder.append(' ');
+                }
+                int value = board.getValue(i, j);
+                builder.append(value == 0 ? "_" : Integer.toString(value));
+            }
+        }
+        return builder.toString();
+    }
+}
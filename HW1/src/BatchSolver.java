@@ -0,0 +1,268 @@
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Solves many boards on a fixed number of threads.
+ * Every board gets its own Search, which stops by itself when its time limit passes,
+ * so a slow board never holds a thread for longer than the time limit.
+ * Results are passed on as soon as each board is done, in the order the boards finish.
+ * Only a few boards per thread are submitted at a time, so the boards can come from an iterator of any length.
+ * A board string that is not a valid board gets a result with status INVALID, so one bad line never ends a batch.
+ */
+public class BatchSolver implements AutoCloseable {
+    private static final int BOARDS_PER_THREAD = 2; // Boards submitted ahead of the results that were consumed
+
+    private final ExecutorService executor;
+    private final int maxSubmittedBoards;
+    private final Supplier<Search> searchFactory;
+    private final Search.Strategy strategy;
+    private final long timeLimit;
+    private final Set<Search> runningSearches = ConcurrentHashMap.newKeySet();
+    private volatile boolean cancelled;
+
+    /**
+     * Constructs a BatchSolver that uses default searches.
+     *
+     * @param threads number of boards solved at the same time
+     * @param strategy the search algorithm to use
+     * @param timeLimit time limit of each board in milliseconds, or 0 for no limit
+     * @throws IllegalArgumentException if threads is smaller than 1 or timeLimit is negative
+     */
+    public BatchSolver(int threads, Search.Strategy strategy, long timeLimit) {
+        this(threads, Search::new, strategy, timeLimit);
+    }
+
+    /**
+     * Constructs a BatchSolver.
+     *
+     * @param threads number of boards solved at the same time
+     * @param searchFactory creates a configured Search for every board (heuristic, weight, table size)
+     * @param strategy the search algorithm to use
+     * @param timeLimit time limit of each board in milliseconds, or 0 for no limit
+     * @throws IllegalArgumentException if threads is smaller than 1 or timeLimit is negative
+     */
+    public BatchSolver(int threads, Supplier<Search> searchFactory, Search.Strategy strategy, long timeLimit) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Number of threads must be positive: " + threads);
+        }
+        if (timeLimit < 0) {
+            throw new IllegalArgumentException("Negative time limit: " + timeLimit);
+        }
+        this.searchFactory = searchFactory;
+        this.strategy = strategy;
+        this.timeLimit = timeLimit;
+        maxSubmittedBoards = threads * BOARDS_PER_THREAD;
+        executor = Executors.newFixedThreadPool(threads, new SolverThreadFactory());
+    }
+
+    /**
+     * Solves boards and passes the result of every board to a consumer as soon as the board is done.
+     * The consumer is called on the calling thread, one result at a time.
+     * Invalid board strings get a result with status INVALID.
+     * Returns after all boards are done, or throws right away if a search failed (for example, the external
+     * memory search could not use its files), in which case the boards that are still running are cancelled.
+     *
+     * @param boardStrings Strings representing the initial boards
+     * @param consumer receives the results
+     * @return number of solved boards
+     * @throws InterruptedException if the calling thread was interrupted while waiting for a result
+     */
+    public int solveAll(Iterable<String> boardStrings, Consumer<Result> consumer) throws InterruptedException {
+        CompletionService<Result> completionService = new ExecutorCompletionService<>(executor);
+        Iterator<String> boards = boardStrings.iterator();
+        int submittedBoards = 0;
+        int solvedBoards = 0;
+        try {
+            while (submittedBoards > 0 || boards.hasNext()) {
+                while (submittedBoards < maxSubmittedBoards && boards.hasNext()) {
+                    String boardString = boards.next();
+                    completionService.submit(() -> solve(boardString));
+                    submittedBoards++;
+                }
+                Result result = takeResult(completionService);
+                submittedBoards--;
+                if (result.getStatus() == Search.Status.SOLVED) {
+                    solvedBoards++;
+                }
+                consumer.accept(result);
+            }
+        } finally {
+            if (submittedBoards > 0) {  // Left early, let the remaining boards end as soon as possible
+                cancel();
+            }
+        }
+        return solvedBoards;
+    }
+
+    /**
+     * Cancels every board that is being solved, and every board that was not started yet.
+     * Cancelled boards end with status CANCELLED, and the solver cannot solve boards anymore.
+     */
+    public void cancel() {
+        cancelled = true;
+        for (Search search : runningSearches) {
+            search.cancel();
+        }
+    }
+
+    /**
+     * Cancels all boards and waits for the threads to end.
+     * If interrupted while waiting, returns right away with the interrupt status set.
+     */
+    @Override
+    public void close() {
+        cancel();
+        executor.shutdown();
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);  // Searches stop every few expanded nodes
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();  // The threads are daemons and already cancelled
+        }
+    }
+
+    /**
+     * Solves a single board on the current thread.
+     *
+     * @param boardString String representing the initial board
+     * @return result of the search, with status INVALID if the board string is not a valid board
+     */
+    private Result solve(String boardString) {
+        Board board;
+        try {
+            board = new Board(boardString);
+        } catch (IllegalArgumentException e) {
+            return new Result(boardString, Search.Status.INVALID, null, 0, 0, e.getMessage());
+        }
+        Search search = searchFactory.get();
+        search.setTimeLimit(timeLimit);
+        runningSearches.add(search);
+        try {
+            if (cancelled) {  // Checked after adding, so a concurrent cancel() never misses the search
+                search.cancel();
+            }
+            long start = System.nanoTime();
+            List<Action> solution = search.search(board, strategy);
+            long elapsedTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            return new Result(boardString, search.getStatus(), solution, search.getExpandedNodes(), elapsedTime);
+        } finally {
+            runningSearches.remove(search);
+        }
+    }
+
+    /**
+     * Waits for the next board to be done.
+     *
+     * @param completionService service the boards were submitted to
+     * @return result of the board
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private static Result takeResult(CompletionService<Result> completionService) throws InterruptedException {
+        try {
+            return completionService.take().get();
+        } catch (ExecutionException e) {  // The search threw, pass the original exception on
+            Throwable cause = e.getCause();
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /** The outcome of solving a single board. */
+    public static class Result {
+        private final String boardString;
+        private final Search.Status status;
+        private final List<Action> solution;
+        private final long expandedNodes;
+        private final long elapsedTime; // In milliseconds
+        private final String error; // Why the board string is invalid, or null
+
+        /**
+         * Constructs a Result.
+         *
+         * @param boardString String representing the initial board
+         * @param status status the search ended with
+         * @param solution actions that solve the board, or null if it was not solved
+         * @param expandedNodes number of nodes the search expanded
+         * @param elapsedTime time the search took, in milliseconds
+         */
+        public Result(String boardString, Search.Status status, List<Action> solution, long expandedNodes,
+                      long elapsedTime) {
+            this(boardString, status, solution, expandedNodes, elapsedTime, null);
+        }
+
+        /**
+         * Constructs a Result with an error message.
+         *
+         * @param boardString String representing the initial board
+         * @param status status the search ended with
+         * @param solution actions that solve the board, or null if it was not solved
+         * @param expandedNodes number of nodes the search expanded
+         * @param elapsedTime time the search took, in milliseconds
+         * @param error why the board string is not a valid board, or null
+         */
+        public Result(String boardString, Search.Status status, List<Action> solution, long expandedNodes,
+                      long elapsedTime, String error) {
+            this.boardString = boardString;
+            this.status = status;
+            this.solution = solution;
+            this.expandedNodes = expandedNodes;
+            this.elapsedTime = elapsedTime;
+            this.error = error;
+        }
+
+        public String getBoardString() {
+            return boardString;
+        }
+
+        public Search.Status getStatus() {
+            return status;
+        }
+
+        public List<Action> getSolution() {
+            return solution;
+        }
+
+        public long getExpandedNodes() {
+            return expandedNodes;
+        }
+
+        public long getElapsedTime() {
+            return elapsedTime;
+        }
+
+        public String getError() {
+            return error;
+        }
+    }
+
+    /** Creates named daemon threads, so an abandoned solver never keeps the program running. */
+    private static class SolverThreadFactory implements ThreadFactory {
+        private static final AtomicInteger SOLVERS = new AtomicInteger();
+
+        private final int solver = SOLVERS.incrementAndGet();
+        private final AtomicInteger threads = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable task) {
+            Thread thread = new Thread(task, "batch-solver-" + solver + "-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
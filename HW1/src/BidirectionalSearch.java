@@ -0,0 +1,248 @@
+import java.util.function.BooleanSupplier;
+
+/**
+ * A bidirectional search, which searches forward from the initial board and backward from the goal board
+ * at the same time, until the two searches meet in the middle.
+ * <p>
+ * The search is MM (Holte et al.): each side orders its nodes by the larger of path cost plus heuristic value
+ * and twice the path cost, so neither side searches further than half of the solution before the sides meet.
+ * The forward side uses the given heuristic, the backward side uses the Manhattan distance to the initial board.
+ * Both sides share one fingerprint table, the keys of the backward side are salted so the two never collide.
+ * A generated node whose state the other side has reached is a meeting point, and the search ends once the best
+ * meeting is no longer than the lowest priority of both sides, so the solution found is a shortest one.
+ */
+public class BidirectionalSearch {
+    private static final long BACKWARD_SALT = 0x5851F42D4C957F2DL; // Mixed into the fingerprints of backward states
+    private static final int STOP_CHECK_INTERVAL = 1024; // Expanded nodes between checks of the stop condition
+
+    private final Heuristic heuristic;
+    private final int expectedStates;
+    private final float loadFactor;
+    private final BooleanSupplier stopCondition;
+    private long expandedNodes;
+    private boolean stopped;
+
+    /**
+     * Constructs a BidirectionalSearch.
+     *
+     * @param heuristic heuristic of the forward side, should never overestimate
+     * @param expectedStates number of states the table and each side hold before they have to grow
+     * @param loadFactor load factor of the table
+     * @param stopCondition checked every few expanded nodes, the search stops once it returns true
+     */
+    public BidirectionalSearch(Heuristic heuristic, int expectedStates, float loadFactor, BooleanSupplier stopCondition) {
+        this.heuristic = heuristic;
+        this.expectedStates = expectedStates;
+        this.loadFactor = loadFactor;
+        this.stopCondition = stopCondition;
+    }
+
+    /**
+     * Searches for a shortest solution from a given board.
+     *
+     * @param root the initial board
+     * @param rootEvaluation packed heuristic evaluation of the initial board (see Heuristic.evaluatePacked)
+     * @return the moves of a shortest solution (direction ordinals), or null if there is no solution
+     *         or the search was stopped
+     */
+    public byte[] search(Board root, long rootEvaluation) {
+        stopped = false;
+        if (root.isInOrder()) {
+            return new byte[0];
+        }
+        Geometry geometry = root.getGeometry();
+        Board goal = new Board(geometry);
+        int[] targetCells = new int[geometry.getCells()]; // Cell of every tile value on the initial board
+        for (int i = 0; i < geometry.getRows(); i++) {
+            for (int j = 0; j < geometry.getColumns(); j++) {
+                targetCells[root.getValue(i, j)] = i * geometry.getColumns() + j;
+            }
+        }
+
+        Side forward = new Side(geometry, false);
+        Side backward = new Side(geometry, true);
+        FingerprintTable reached = new FingerprintTable(expectedStates, loadFactor);  // Latest node of every state, by side
+        forward.add(reached, NodeArena.NO_PARENT, 0, root, 0, rootEvaluation, heuristic.valueOf(rootEvaluation));
+        int goalValue = distanceTo(goal, targetCells);
+        backward.add(reached, NodeArena.NO_PARENT, 0, goal, 0, goalValue, goalValue);
+
+        Board board = new Board(root);  // Board of the node being expanded
+        Board child = new Board(root);  // Board of the child being generated
+        int bestCost = Integer.MAX_VALUE;  // Length of the best solution found so far
+        int forwardMeeting = -1;
+        int backwardMeeting = -1;
+        while (!forward.frontier.isEmpty() && !backward.frontier.isEmpty()) {
+            int forwardPriority = forward.frontier.minPriority();
+            int backwardPriority = backward.frontier.minPriority();
+            if (bestCost <= Math.min(forwardPriority, backwardPriority)) {
+                break;  // No unexpanded node can lead to a shorter solution
+            }
+            Side side = forwardPriority <= backwardPriority ? forward : backward;
+            Side other = side == forward ? backward : forward;
+            int node = side.frontier.remove();
+            side.arena.loadBoard(node, board);
+            if (reached.get(side.key(board.getFingerprint()), -1) != node) {
+                continue;  // A shorter path to this state was found after the node was added
+            }
+            expandedNodes++;
+            if ((expandedNodes & (STOP_CHECK_INTERVAL - 1)) == 0 && stopCondition.getAsBoolean()) {
+                stopped = true;
+                return null;
+            }
+
+            int pathCost = side.arena.getPathCost(node) + 1;  // Path cost of the children
+            long evaluation = side.arena.getEvaluation(node);  // The backward side stores its heuristic value
+            for (int move = 0; move < 4; move++) {
+                if (!board.canSlide(move)) {
+                    continue;
+                }
+                int movedValue = board.getSlidingValue(move);
+                child.copyFrom(board);
+                child.slide(move);
+                int reachedNode = reached.get(side.key(child.getFingerprint()), -1);
+                if (reachedNode >= 0 && side.arena.getPathCost(reachedNode) <= pathCost) {
+                    continue;  // Already reached with a path that is not longer
+                }
+                long childEvaluation;
+                int childValue;
+                if (side == forward) {
+                    childEvaluation = heuristic.evaluatePacked(board, child, evaluation);
+                    childValue = heuristic.valueOf(childEvaluation);
+                } else {  // Only the moved tile changed its distance from its cell on the initial board
+                    int to = board.getEmptyTileRow() * geometry.getColumns() + board.getEmptyTileColumn();
+                    int from = geometry.neighbor(to, move);
+                    childValue = (int) evaluation + cellDistance(geometry, to, targetCells[movedValue])
+                            - cellDistance(geometry, from, targetCells[movedValue]);
+                    childEvaluation = childValue;
+                }
+                int childNode = side.add(reached, node, move, child, pathCost, childEvaluation, childValue);
+
+                int meetingNode = reached.get(other.key(child.getFingerprint()), -1);
+                if (meetingNode >= 0 && pathCost + other.arena.getPathCost(meetingNode) < bestCost) {
+                    bestCost = pathCost + other.arena.getPathCost(meetingNode);
+                    forwardMeeting = side == forward ? childNode : meetingNode;
+                    backwardMeeting = side == forward ? meetingNode : childNode;
+                }
+            }
+        }
+        if (bestCost == Integer.MAX_VALUE) {
+            return null;
+        }
+        return spliceMoves(forward.arena.getMoves(forwardMeeting), backward.arena.getMoves(backwardMeeting));
+    }
+
+    /**
+     * Returns the number of nodes expanded by both sides.
+     *
+     * @return number of expanded nodes
+     */
+    public long getExpandedNodes() {
+        return expandedNodes;
+    }
+
+    /**
+     * Checks if the last search was stopped by the stop condition before it ended.
+     *
+     * @return true if the search was stopped
+     */
+    public boolean isStopped() {
+        return stopped;
+    }
+
+    /**
+     * Joins the moves of the forward side with the moves of the backward side, undone in reverse order.
+     *
+     * @param forwardMoves moves from the initial board to the meeting state
+     * @param backwardMoves moves from the goal board to the meeting state
+     * @return moves from the initial board to the goal board
+     */
+    private static byte[] spliceMoves(byte[] forwardMoves, byte[] backwardMoves) {
+        byte[] moves = new byte[forwardMoves.length + backwardMoves.length];
+        System.arraycopy(forwardMoves, 0, moves, 0, forwardMoves.length);
+        for (int i = 0; i < backwardMoves.length; i++) {
+            moves[forwardMoves.length + i] = (byte) Direction.opposite(backwardMoves[backwardMoves.length - 1 - i]);
+        }
+        return moves;
+    }
+
+    /**
+     * Calculates the Manhattan distance of a board from a target board.
+     *
+     * @param board the board
+     * @param targetCells cell of every tile value on the target board
+     * @return sum of the distances of all tiles except the empty tile
+     */
+    private static int distanceTo(Board board, int[] targetCells) {
+        Geometry geometry = board.getGeometry();
+        int distance = 0;
+        for (int i = 0; i < geometry.getRows(); i++) {
+            for (int j = 0; j < geometry.getColumns(); j++) {
+                int value = board.getValue(i, j);
+                if (value != 0) {
+                    distance += cellDistance(geometry, i * geometry.getColumns() + j, targetCells[value]);
+                }
+            }
+        }
+        return distance;
+    }
+
+    /**
+     * Calculates the Manhattan distance between two cells.
+     *
+     * @param geometry size of the board
+     * @param first first cell
+     * @param second second cell
+     * @return number of rows plus number of columns between the cells
+     */
+    private static int cellDistance(Geometry geometry, int first, int second) {
+        int columns = geometry.getColumns();
+        return Helper.absolute(first / columns - second / columns) + Helper.absolute(first % columns - second % columns);
+    }
+
+    /** The nodes and frontier of one direction of the search. */
+    private class Side {
+        private final NodeArena arena;
+        private final IntBucketQueue frontier = new IntBucketQueue();  // Node indices, ordered by MM priority
+        private final boolean backward;
+
+        /**
+         * Constructs an empty Side.
+         *
+         * @param geometry size of the boards
+         * @param backward true for the side that starts from the goal board
+         */
+        Side(Geometry geometry, boolean backward) {
+            arena = new NodeArena(geometry, expectedStates);
+            this.backward = backward;
+        }
+
+        /**
+         * Returns the key of a state of this side in the shared table.
+         *
+         * @param fingerprint fingerprint of the state
+         * @return table key
+         */
+        long key(long fingerprint) {
+            return backward ? fingerprint ^ BACKWARD_SALT : fingerprint;
+        }
+
+        /**
+         * Adds a node to the arena, the frontier and the shared table.
+         *
+         * @param reached the shared table
+         * @param parent index of the parent node, or NO_PARENT
+         * @param move move from the parent board
+         * @param board board of the node
+         * @param pathCost number of moves from the side's root
+         * @param evaluation evaluation of the board kept in the arena
+         * @param value heuristic value of the board
+         * @return index of the node
+         */
+        int add(FingerprintTable reached, int parent, int move, Board board, int pathCost, long evaluation, int value) {
+            int node = arena.add(parent, move, board, pathCost, evaluation);
+            reached.put(key(board.getFingerprint()), node);
+            frontier.add(node, Math.max(pathCost + value, 2 * pathCost));
+            return node;
+        }
+    }
+}
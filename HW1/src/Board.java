@@ -2,63 +2,158 @@ import java.util.Arrays;
 
 /**
  * Represents the game board.
- * Contains the tiles and goal positions.
+ * Contains the tiles and the geometry (size and goal positions) of the board.
+ * The tiles are stored row by row as values in a single byte array (read as unsigned),
+ * so copying, comparing and hashing a board are flat array operations.
+ * Every board also keeps a 64-bit Zobrist hash of its tiles which is updated
+ * in O(1) whenever a tile is set.
  */
 public class Board {
 
-    private final Tile[][] tiles;
-    private static int rows, columns; // All boards are the same size in a single game
+    private static final Heuristic DEFAULT_HEURISTIC = new LinearConflictHeuristic(); // Stateless, shared
+
+    private final Geometry geometry; // Shared by all boards of the same size
+    private final byte[] tiles; // Tile values, row by row
     private int emptyTileRow, emptyTileColumn; // Used to store the empty tile location
-    private static int[][] goalPositions; // Used to store desired positions
+    private long fingerprint; // XOR of the Zobrist keys of all (cell, value) pairs on the board
 
     /**
      * Constructs Board object based on a string.
-     * This is the initial board and also determines the size of all boards in the game.
-     * Additionally, initializes goalPositions array.
+     * The size of the board is determined by the string.
+     * Values are separated by spaces (or tabs) and rows by '|', and the empty tile is written as '_' (or 0).
+     * The string is scanned character by character, without splitting it into strings.
+     * Accepts the same boards as a line of BoardReader's text format.
      *
      * @param boardString string representation of the board
+     * @throws IllegalArgumentException if the board has more than 256 cells, its rows have different lengths,
+     *         it contains an invalid tile, or its tiles are not a permutation of 0 to cells - 1
      */
     public Board(String boardString) {
-        //Extract values from string
-        String[] boardValues = boardString.replace("|", " | ").replace('_', '0').split(" ");
-
         // Count rows and columns
-        rows = 1;
-        columns = 0;
-        for (String value : boardValues) {
-            if (value.equals("|")) {
+        int rows = 1;
+        int columns = 0;
+        boolean inValue = false;
+        for (int i = 0; i < boardString.length(); i++) {
+            char c = boardString.charAt(i);
+            if (c == '|') {
                 rows++;
-            }
-            if (rows == 1) {
-                columns++;
+                inValue = false;
+            } else if (isSeparator(c)) {
+                inValue = false;
+            } else if (!inValue) {
+                inValue = true;
+                if (rows == 1) {
+                    columns++;
+                }
             }
         }
-        tiles = new Tile[rows][columns];
+        geometry = Geometry.of(rows, columns);
+        tiles = new byte[rows * columns];
 
         // Fill tiles array
+        boolean[] seen = new boolean[tiles.length];
         int rowIndex = 0;
         int columnIndex = 0;
-        for (String value : boardValues) {
-            if (value.equals("|")) {
-                rowIndex++;
-                columnIndex = 0;
+        int tileValue = -1; // Value being read, -1 between values
+        boolean blank = false; // The value being read is '_', which no digit may follow
+        for (int i = 0; i <= boardString.length(); i++) {
+            char c = i < boardString.length() ? boardString.charAt(i) : '|';
+            if (isSeparator(c) || c == '|') {
+                if (tileValue >= 0) {
+                    if (columnIndex == columns) {
+                        throw new IllegalArgumentException("Rows have different lengths: " + boardString);
+                    }
+                    if (seen[tileValue]) {
+                        throw new IllegalArgumentException("Tiles must be distinct values from 0 to "
+                                + (tiles.length - 1) + ": " + boardString);
+                    }
+                    seen[tileValue] = true;
+                    tiles[rowIndex * columns + columnIndex] = (byte) tileValue;
+                    // Save empty tile location
+                    if (tileValue == 0) {
+                        emptyTileRow = rowIndex;
+                        emptyTileColumn = columnIndex;
+                    }
+                    columnIndex++;
+                    tileValue = -1;
+                    blank = false;
+                }
+                if (c == '|') {
+                    if (columnIndex != columns) {
+                        throw new IllegalArgumentException("Rows have different lengths: " + boardString);
+                    }
+                    rowIndex++;
+                    columnIndex = 0;
+                }
             } else {
-                tiles[rowIndex][columnIndex] = new Tile(Integer.parseInt(value));
-                // Save empty tile location
-                if (tiles[rowIndex][columnIndex].getValue() == 0) {
-                    emptyTileRow = rowIndex;
-                    emptyTileColumn = columnIndex;
+                int digit = c == '_' ? 0 : Character.digit(c, 10);
+                if (digit < 0 || (tileValue >= 0 && (c == '_' || blank))) {
+                    throw new IllegalArgumentException("Invalid tile in " + boardString);
+                }
+                blank = c == '_';
+                tileValue = (tileValue < 0 ? 0 : tileValue * 10) + digit;
+                if (tileValue >= tiles.length) {
+                    throw new IllegalArgumentException("Invalid tile in " + boardString);
                 }
-                columnIndex++;
             }
         }
 
-        // Initialize goal positions
-        goalPositions = new int[rows * columns][2];
-        for (int value = 1; value <= rows * columns; value++) {
-            goalPositions[value - 1] = new int[2];
-            goalPositions[value - 1][0] = (value - 1) / columns; // goalRow
-            goalPositions[value - 1][1] = (value - 1) % columns; // goalColumn
+        // Hash the initial board
+        for (int i = 0; i < tiles.length; i++) {
+            fingerprint ^= geometry.zobristKey(i, tiles[i] & 0xFF);
+        }
+    }
+
+    /**
+     * Checks if a character separates the values of a row in a board string.
+     *
+     * @param c the character
+     * @return true for spaces, tabs and carriage returns, as in BoardReader
+     */
+    private static boolean isSeparator(char c) {
+        return c == ' ' || c == '\t' || c == '\r';
+    }
+
+    /**
+     * Constructs a Board from tile values.
+     *
+     * @param geometry size of the board
+     * @param values tile values row by row, 0 for the empty tile, which are copied
+     * @throws IllegalArgumentException if the values are not a permutation of 0 to cells - 1
+     */
+    public Board(Geometry geometry, byte[] values) {
+        if (values.length != geometry.getCells()) {
+            throw new IllegalArgumentException("Expected " + geometry.getCells() + " tiles but got " + values.length);
+        }
+        boolean[] seen = new boolean[values.length];
+        for (byte value : values) {
+            int tile = value & 0xFF;
+            if (tile >= values.length || seen[tile]) {
+                throw new IllegalArgumentException("Tiles must be distinct values from 0 to " + (values.length - 1)
+                        + ": " + tile);
+            }
+            seen[tile] = true;
+        }
+        this.geometry = geometry;
+        tiles = new byte[values.length];
+        unpack(values, 0);
+    }
+
+    /**
+     * Constructs the goal board of a given size: tiles in ascending order, with the empty tile last.
+     *
+     * @param geometry size of the board
+     */
+    public Board(Geometry geometry) {
+        this.geometry = geometry;
+        tiles = new byte[geometry.getCells()];
+        for (int i = 0; i < tiles.length - 1; i++) {
+            tiles[i] = (byte) (i + 1);
+        }
+        emptyTileRow = geometry.getRows() - 1;
+        emptyTileColumn = geometry.getColumns() - 1;
+        for (int i = 0; i < tiles.length; i++) {
+            fingerprint ^= geometry.zobristKey(i, tiles[i] & 0xFF);
         }
     }
 
@@ -68,17 +163,14 @@ public class Board {
      * @param board the board to copy
      */
     public Board(Board board) {
-        // New tiles array
-        this.tiles = new Tile[rows][columns];
+        this.geometry = board.geometry;
+        // Copy tiles
+        this.tiles = board.tiles.clone();
         // Copy empty tile location
         this.emptyTileRow = board.emptyTileRow;
         this.emptyTileColumn = board.emptyTileColumn;
-        // Copy tiles
-        for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < columns; j++) {
-                this.tiles[i][j] = board.tiles[i][j];
-            }
-        }
+        // Copy hash
+        this.fingerprint = board.fingerprint;
     }
 
     /**
@@ -88,22 +180,73 @@ public class Board {
      * @return true if tiles in order, false otherwise
      */
     public boolean isInOrder() {
-        if (emptyTileRow != rows - 1 || emptyTileColumn != columns - 1) {
+        if (emptyTileRow != geometry.getRows() - 1 || emptyTileColumn != geometry.getColumns() - 1) {
             return false;
         }
-        int currentValue;
-        int previousValue = 0;
-        for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < columns; j++) {
-                currentValue = tiles[i][j].getValue();
-                if (currentValue > previousValue) {
-                    previousValue = currentValue;
-                } else {
-                    return i == rows - 1 && j == columns - 1; // true if last tile
-                }
+        // Every tile except the last one should hold its position + 1
+        for (int i = 0; i < tiles.length - 1; i++) {
+            if ((tiles[i] & 0xFF) != i + 1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks if the goal board can be reached from this board.
+     * Every move keeps the parity of the number of inversions (pairs of tiles in reverse order, reading row by row)
+     * when the board has an odd number of columns, and flips it together with the empty tile row otherwise.
+     * Boards with a single row or column cannot reorder their tiles at all.
+     *
+     * @return true if the board is solvable, false otherwise
+     */
+    public boolean isSolvable() {
+        int[] values = new int[tiles.length - 1]; // Tiles without the empty tile, row by row
+        int count = 0;
+        for (byte tile : tiles) {
+            if (tile != 0) {
+                values[count++] = tile & 0xFF;
+            }
+        }
+        long inversions = countInversions(values, new int[values.length], 0, values.length);
+        if (geometry.getRows() == 1 || geometry.getColumns() == 1) {
+            return inversions == 0;
+        }
+        if (geometry.getColumns() % 2 == 1) {
+            return inversions % 2 == 0;
+        }
+        return (inversions + (geometry.getRows() - 1 - emptyTileRow)) % 2 == 0;
+    }
+
+    /**
+     * Counts the pairs of values in reverse order within a range of an array, using merge sort.
+     * The range is sorted.
+     *
+     * @param values the values
+     * @param buffer array of the same length used for merging
+     * @param from first index of the range
+     * @param to index after the range
+     * @return number of inversions in the range
+     */
+    private static long countInversions(int[] values, int[] buffer, int from, int to) {
+        if (to - from < 2) {
+            return 0;
+        }
+        int middle = (from + to) >>> 1;
+        long inversions = countInversions(values, buffer, from, middle) + countInversions(values, buffer, middle, to);
+        int left = from;
+        int right = middle;
+        int index = from;
+        while (left < middle || right < to) {
+            if (right == to || (left < middle && values[left] < values[right])) {
+                buffer[index++] = values[left++];
+            } else {
+                inversions += middle - left; // All remaining left values are larger
+                buffer[index++] = values[right++];
             }
         }
-        return false;
+        System.arraycopy(buffer, from, values, from, to - from);
+        return inversions;
     }
 
     /**
@@ -115,21 +258,72 @@ public class Board {
      * @return tile at location or null if given location is out of bounds
      */
     public Tile getTile(int row, int column) {
-        if (row >= 0 && row < rows && column >= 0 && column < columns) {
-            return tiles[row][column];
+        if (row >= 0 && row < geometry.getRows() && column >= 0 && column < geometry.getColumns()) {
+            return geometry.tile(getValue(row, column));
         }
         return null;
     }
 
+    /**
+     * Returns the value of the tile at a given location, without bounds checking.
+     *
+     * @param row row index of tile
+     * @param column column index of tile
+     * @return value of the tile at location (0 for the empty tile)
+     */
+    public int getValue(int row, int column) {
+        return tiles[row * geometry.getColumns() + column] & 0xFF;
+    }
+
     /**
      * Set the tile at a given location.
+     * The board fingerprint is updated accordingly.
      *
      * @param row row index for location
      * @param column column index for location
      * @param tile tile to set at location
      */
     public void setTile(int row, int column, Tile tile) {
-        tiles[row][column] = tile;
+        int index = row * geometry.getColumns() + column;
+        fingerprint ^= geometry.zobristKey(index, tiles[index] & 0xFF) ^ geometry.zobristKey(index, tile.getValue());
+        tiles[index] = (byte) tile.getValue();
+    }
+
+    /**
+     * Returns the 64-bit Zobrist hash of the board.
+     * Equal boards always have equal fingerprints.
+     *
+     * @return board fingerprint
+     */
+    public long getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Returns the geometry of the board.
+     *
+     * @return board geometry
+     */
+    public Geometry getGeometry() {
+        return geometry;
+    }
+
+    /**
+     * Returns the number of rows of the board.
+     *
+     * @return number of rows
+     */
+    public int getRows() {
+        return geometry.getRows();
+    }
+
+    /**
+     * Returns the number of columns of the board.
+     *
+     * @return number of columns
+     */
+    public int getColumns() {
+        return geometry.getColumns();
     }
 
     /**
@@ -162,61 +356,101 @@ public class Board {
         emptyTileColumn = newColumn;
     }
 
+    /**
+     * Checks if a tile can slide into the empty tile in a given direction.
+     *
+     * @param direction direction ordinal
+     * @return true if there is a tile next to the empty tile that can move in that direction
+     */
+    public boolean canSlide(int direction) {
+        return geometry.neighbor(emptyTileRow * geometry.getColumns() + emptyTileColumn, direction) >= 0;
+    }
+
+    /**
+     * Slides the tile next to the empty tile into it, in a given direction.
+     * The fingerprint and the empty tile location are updated in place, without allocating.
+     * Sliding in the opposite direction undoes the move.
+     *
+     * @param direction direction ordinal, canSlide(direction) should be true
+     */
+    public void slide(int direction) {
+        int to = emptyTileRow * geometry.getColumns() + emptyTileColumn;
+        int from = geometry.neighbor(to, direction);
+        int value = tiles[from] & 0xFF;
+        fingerprint ^= geometry.zobristKey(to, 0) ^ geometry.zobristKey(to, value)
+                ^ geometry.zobristKey(from, value) ^ geometry.zobristKey(from, 0);
+        tiles[to] = (byte) value;
+        tiles[from] = 0;
+        emptyTileRow = from / geometry.getColumns();
+        emptyTileColumn = from % geometry.getColumns();
+    }
+
+    /**
+     * Returns the value of the tile that would slide into the empty tile in a given direction.
+     *
+     * @param direction direction ordinal, canSlide(direction) should be true
+     * @return value of the moving tile
+     */
+    public int getSlidingValue(int direction) {
+        return tiles[geometry.neighbor(emptyTileRow * geometry.getColumns() + emptyTileColumn, direction)] & 0xFF;
+    }
+
+    /**
+     * Writes the tiles of the board to an array, one byte per cell, row by row.
+     *
+     * @param buffer destination array
+     * @param offset index of the first cell in the array
+     */
+    public void pack(byte[] buffer, int offset) {
+        System.arraycopy(tiles, 0, buffer, offset, tiles.length);
+    }
+
+    /**
+     * Overwrites this board with tiles written by pack(), without allocating.
+     * The empty tile location and the fingerprint are recalculated.
+     *
+     * @param buffer source array, holding a board of the same size
+     * @param offset index of the first cell in the array
+     */
+    public void unpack(byte[] buffer, int offset) {
+        System.arraycopy(buffer, offset, tiles, 0, tiles.length);
+        fingerprint = 0;
+        for (int i = 0; i < tiles.length; i++) {
+            if (tiles[i] == 0) {
+                emptyTileRow = i / geometry.getColumns();
+                emptyTileColumn = i % geometry.getColumns();
+            }
+            fingerprint ^= geometry.zobristKey(i, tiles[i] & 0xFF);
+        }
+    }
+
+    /**
+     * Overwrites this board with the tiles of another board of the same size, without allocating.
+     *
+     * @param board the board to copy
+     * @throws IllegalArgumentException if the boards have different sizes
+     */
+    public void copyFrom(Board board) {
+        if (board.geometry != geometry) {
+            throw new IllegalArgumentException("Cannot copy a " + board.getRows() + "x" + board.getColumns()
+                    + " board into a " + getRows() + "x" + getColumns() + " board");
+        }
+        System.arraycopy(board.tiles, 0, tiles, 0, tiles.length);
+        emptyTileRow = board.emptyTileRow;
+        emptyTileColumn = board.emptyTileColumn;
+        fingerprint = board.fingerprint;
+    }
+
     /**
      * Calculate the estimated number of moves remaining to get to the goal board.
      * This number represents the heuristic value.
+     * It is the Manhattan distance plus linear conflicts (see LinearConflictHeuristic),
+     * which never overestimates the actual number of moves.
      *
      * @return heuristic value
      */
     public int calculateHeuristicValue() {
-        int totalDistance = 0;
-        int conflicts = 0;
-
-        for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < columns; j++) {
-
-                // Check distance from goal position
-                int value = tiles[i][j].getValue();
-                if (value == 0) // Empty tile
-                    continue;
-                int goalRow = goalPositions[value - 1][0];
-                int goalColumn = goalPositions[value - 1][1];
-                int distance = Helper.absolute(i - goalRow) + Helper.absolute(j - goalColumn);
-
-                totalDistance += distance;
-
-                // Check for conflicts in the same row
-                if (i == goalRow) {
-                    for (int k = j + 1; k < columns; k++) {
-                        int nextValue = tiles[i][k].getValue();
-                        if (nextValue == 0) // Empty tile
-                            continue;
-                        int nextGoalRow = goalPositions[nextValue - 1][0];
-                        int nextGoalColumn = goalPositions[nextValue - 1][1];
-
-                        if (i == nextGoalRow && j > nextGoalColumn) {
-                            conflicts++;
-                        }
-                    }
-                }
-
-                // Check for conflicts in the same column
-                if (j == goalColumn) {
-                    for (int k = i + 1; k < rows; k++) {
-                        int nextValue = tiles[k][j].getValue();
-                        if (nextValue == 0) // Empty tile
-                            continue;
-                        int nextGoalRow = goalPositions[nextValue - 1][0];
-                        int nextGoalColumn = goalPositions[nextValue - 1][1];
-
-                        if (j == nextGoalColumn && i > nextGoalRow) {
-                            conflicts++;
-                        }
-                    }
-                }
-            }
-        }
-        return totalDistance + (2 * conflicts);
+        return DEFAULT_HEURISTIC.evaluate(this);
     }
 
     @Override
@@ -225,11 +459,12 @@ public class Board {
             return false;
         }
         Board board = (Board) other;
-        return Arrays.deepEquals(tiles, board.tiles);
+        // Only compare the tiles when the fingerprints match
+        return fingerprint == board.fingerprint && geometry == board.geometry && Arrays.equals(tiles, board.tiles);
     }
 
     @Override
     public int hashCode() {
-        return Arrays.deepHashCode(tiles);
+        return Long.hashCode(fingerprint);
     }
 }
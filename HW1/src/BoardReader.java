@@ -0,0 +1,239 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads boards one at a time from a channel, without creating a String per board.
+ * Two formats are read, told apart by the first bytes:
+ * <ul>
+ * <li>Text, one board per line in the format of the Board constructor ("1 2 3|4 5 6|7 8 _").
+ * Blank lines are skipped.</li>
+ * <li>The binary corpus format written by BoardWriter: the MAGIC number, then for every board a byte of
+ * rows - 1, a byte of columns - 1 and a byte per tile value, row by row.</li>
+ * </ul>
+ * The bytes are read through one reusable buffer, and tile values go straight into the packed board.
+ */
+public class BoardReader implements Closeable {
+    static final int MAGIC = 0x42524431;  // "BRD1", starts a binary corpus
+    private static final int BUFFER_BYTES = 1 << 16;
+    private static final int MAX_CELLS = 256;  // Largest board (see Geometry)
+
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+    private final byte[] values = new byte[MAX_CELLS];  // Tile values of the board being read
+    private final byte[][] boardValues = new byte[MAX_CELLS + 1][];  // Exact length copies of values, by cell count
+    private final boolean binary;
+    private boolean endOfInput;  // The channel has no more bytes
+    private long boards;  // Number of boards read
+    private long lines;  // Number of lines read, in the text format
+
+    /**
+     * Constructs a BoardReader over a channel, and detects the format.
+     *
+     * @param channel the channel, closed by close()
+     * @throws IOException if the channel cannot be read
+     */
+    public BoardReader(ReadableByteChannel channel) throws IOException {
+        this.channel = channel;
+        buffer.flip();  // Empty until the first read
+        binary = fill(Integer.BYTES) && buffer.getInt(buffer.position()) == MAGIC;
+        if (binary) {
+            buffer.position(buffer.position() + Integer.BYTES);
+        }
+    }
+
+    /**
+     * Opens a file of boards.
+     *
+     * @param file the file, in either format
+     * @return a reader of the file
+     * @throws IOException if the file cannot be opened or read
+     */
+    public static BoardReader open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            return new BoardReader(channel);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the next board.
+     *
+     * @return the board, or null at the end of the input
+     * @throws IOException if the channel cannot be read or the input is not a valid board
+     */
+    public Board next() throws IOException {
+        Board board = binary ? nextRecord() : nextLine();
+        if (board != null) {
+            boards++;
+        }
+        return board;
+    }
+
+    /**
+     * Checks if the input is in the binary corpus format.
+     *
+     * @return true for the binary format, false for text
+     */
+    public boolean isBinary() {
+        return binary;
+    }
+
+    /**
+     * Returns the number of boards read so far.
+     *
+     * @return number of boards
+     */
+    public long getBoards() {
+        return boards;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Reads the next board of the binary format.
+     *
+     * @return the board, or null at the end of the input
+     * @throws IOException if the channel cannot be read or the record is not a valid board
+     */
+    private Board nextRecord() throws IOException {
+        if (!fill(2)) {
+            if (buffer.hasRemaining()) {
+                throw new IOException("Board " + (boards + 1) + " is truncated");
+            }
+            return null;
+        }
+        int rows = (buffer.get() & 0xFF) + 1;
+        int columns = (buffer.get() & 0xFF) + 1;
+        if (rows * columns > MAX_CELLS) {
+            throw new IOException("Board " + (boards + 1) + " has an invalid size: " + rows + "x" + columns);
+        }
+        int cells = rows * columns;
+        if (!fill(cells)) {
+            throw new IOException("Board " + (boards + 1) + " is truncated");
+        }
+        buffer.get(values, 0, cells);
+        return toBoard(rows, columns, "Board " + (boards + 1));
+    }
+
+    /**
+     * Reads the next board of the text format, skipping blank lines.
+     *
+     * @return the board, or null at the end of the input
+     * @throws IOException if the channel cannot be read or the line is not a valid board
+     */
+    private Board nextLine() throws IOException {
+        while (true) {
+            lines++;
+            int rows = 1;
+            int columns = 0;  // Columns of the first row
+            int column = 0;  // Column of the next value in the current row
+            int cells = 0;
+            int value = -1;  // Value being read, -1 between values
+            boolean blank = false;  // The value being read is '_', which no digit may follow
+            while (true) {
+                int c = buffer.hasRemaining() || fill(1) ? buffer.get() : '\n';
+                if (c >= '0' && c <= '9') {
+                    if (blank) {
+                        throw new IOException("Line " + lines + " has an invalid tile");
+                    }
+                    value = (value < 0 ? 0 : value * 10) + c - '0';
+                    if (value >= MAX_CELLS) {
+                        throw new IOException("Line " + lines + " has an invalid tile: " + value);
+                    }
+                } else if (c == '_') {
+                    if (value >= 0) {
+                        throw new IOException("Line " + lines + " has an invalid tile");
+                    }
+                    value = 0;
+                    blank = true;
+                } else if (c == ' ' || c == '\t' || c == '\r' || c == '|' || c == '\n') {
+                    if (value >= 0) {
+                        if (cells == MAX_CELLS) {
+                            throw new IOException("Line " + lines + " has more than " + MAX_CELLS + " tiles");
+                        }
+                        values[cells++] = (byte) value;
+                        column++;
+                        value = -1;
+                        blank = false;
+                    }
+                    if (c == '|' || (c == '\n' && cells > 0)) {  // End of a row
+                        if (rows == 1) {
+                            columns = column;
+                        } else if (column != columns) {
+                            throw new IOException("Line " + lines + " has rows of different lengths");
+                        }
+                        if (c == '|') {
+                            rows++;
+                            column = 0;
+                        }
+                    }
+                    if (c == '\n') {
+                        break;
+                    }
+                } else {
+                    throw new IOException("Line " + lines + " has an invalid character: " + (char) c);
+                }
+            }
+            if (cells > 0) {
+                return toBoard(rows, columns, "Line " + lines);
+            }
+            if (endOfInput && !buffer.hasRemaining()) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Constructs a board from the values read.
+     *
+     * @param rows number of rows
+     * @param columns number of columns
+     * @param location line or record of the board, for error messages
+     * @return the board
+     * @throws IOException if the values are not a valid board
+     */
+    private Board toBoard(int rows, int columns, String location) throws IOException {
+        int cells = rows * columns;
+        if (boardValues[cells] == null) {
+            boardValues[cells] = new byte[cells];
+        }
+        System.arraycopy(values, 0, boardValues[cells], 0, cells);
+        try {
+            return new Board(Geometry.of(rows, columns), boardValues[cells]);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(location + " is not a valid board: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Reads from the channel until the buffer holds a number of bytes, or the channel ends.
+     *
+     * @param bytes number of bytes needed
+     * @return true if the buffer holds at least that many bytes
+     * @throws IOException if the channel cannot be read
+     */
+    private boolean fill(int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) {
+            return true;
+        }
+        buffer.compact();
+        while (buffer.position() < bytes && !endOfInput) {
+            if (channel.read(buffer) < 0) {
+                endOfInput = true;
+            }
+        }
+        buffer.flip();
+        return buffer.remaining() >= bytes;
+    }
+}
@@ -0,0 +1,84 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes boards to a channel in the binary corpus format read by BoardReader.
+ * A board takes two bytes for its size and a byte per tile, so a 4x4 board takes 18 bytes.
+ */
+public class BoardWriter implements Closeable {
+    private static final int BUFFER_BYTES = 1 << 16;
+    private static final int MAX_CELLS = 256;  // Largest board (see Geometry)
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+    private final byte[] values = new byte[MAX_CELLS];  // Tile values of the board being written
+
+    /**
+     * Constructs a BoardWriter over a channel, and writes the MAGIC number when the first buffer is flushed.
+     *
+     * @param channel the channel, closed by close()
+     */
+    public BoardWriter(WritableByteChannel channel) {
+        this.channel = channel;
+        buffer.putInt(BoardReader.MAGIC);
+    }
+
+    /**
+     * Creates a corpus file, replacing the file if it exists.
+     *
+     * @param file the file
+     * @return a writer of the file
+     * @throws IOException if the file cannot be created
+     */
+    public static BoardWriter create(Path file) throws IOException {
+        return new BoardWriter(FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING));
+    }
+
+    /**
+     * Writes a board.
+     *
+     * @param board the board
+     * @throws IOException if the channel cannot be written
+     */
+    public void write(Board board) throws IOException {
+        int cells = board.getGeometry().getCells();
+        if (buffer.remaining() < 2 + cells) {
+            flush();
+        }
+        board.pack(values, 0);
+        buffer.put((byte) (board.getRows() - 1)).put((byte) (board.getColumns() - 1)).put(values, 0, cells);
+    }
+
+    /**
+     * Writes the buffered boards to the channel.
+     *
+     * @throws IOException if the channel cannot be written
+     */
+    public void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Writes the buffered boards and closes the channel.
+     *
+     * @throws IOException if the channel cannot be written or closed
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+}
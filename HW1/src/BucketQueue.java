@@ -0,0 +1,87 @@
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A priority queue for small non-negative integer priorities.
+ * Elements are kept in a table of slots, and an IntBucketQueue orders the slot indices by priority,
+ * so adding is O(1) and removing the minimum is amortized O(1). Freed slots are reused.
+ * Elements with equal priorities are removed in LIFO order.
+ *
+ * @param <E> element type
+ */
+public class BucketQueue<E> {
+    private static final int DEFAULT_CAPACITY = 64;
+
+    private final IntBucketQueue slotQueue = new IntBucketQueue(); // Slot indices, ordered by priority
+    private Object[] elements = new Object[DEFAULT_CAPACITY]; // Element of type E in every used slot
+    private int[] freeSlots = new int[DEFAULT_CAPACITY]; // Stack of freed slots below slotCount
+    private int freeCount;
+    private int slotCount; // Slots used so far, the slots from here on were never used
+
+    /**
+     * Adds an element with a given priority.
+     *
+     * @param element the element to add
+     * @param priority priority of the element, lower values are removed first
+     * @throws IllegalArgumentException if priority is negative or too large (see IntBucketQueue)
+     */
+    public void add(E element, int priority) {
+        int slot = freeCount > 0 ? freeSlots[freeCount - 1] : slotCount;
+        slotQueue.add(slot, priority);
+        if (freeCount > 0) {
+            freeCount--;
+        } else {
+            if (slotCount == elements.length) {
+                elements = Arrays.copyOf(elements, elements.length * 2);
+            }
+            slotCount++;
+        }
+        elements[slot] = element;
+    }
+
+    /**
+     * Removes an element with the lowest priority.
+     *
+     * @return the removed element
+     * @throws NoSuchElementException if the queue is empty
+     */
+    public E remove() {
+        int slot = slotQueue.remove();
+        @SuppressWarnings("unchecked") // Only elements of type E are added
+        E element = (E) elements[slot];
+        elements[slot] = null; // Let the element be garbage collected
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeSlots.length * 2);
+        }
+        freeSlots[freeCount++] = slot;
+        return element;
+    }
+
+    /**
+     * Returns the lowest priority in the queue.
+     *
+     * @return lowest priority
+     * @throws NoSuchElementException if the queue is empty
+     */
+    public int minPriority() {
+        return slotQueue.minPriority();
+    }
+
+    /**
+     * Returns the number of elements in the queue.
+     *
+     * @return the number of elements
+     */
+    public int size() {
+        return slotQueue.size();
+    }
+
+    /**
+     * Checks if the queue is empty.
+     *
+     * @return true if the queue has no elements
+     */
+    public boolean isEmpty() {
+        return slotQueue.isEmpty();
+    }
+}
@@ -2,10 +2,42 @@
  * Represents the movement direction of a tile.
  * There are 4 possible movements:
  * Up, Down, Right and Left.
+ * Directions are declared in pairs of opposites, so a move is undone by the direction with the other low bit.
  */
 public enum Direction {
     UP,
     DOWN,
     RIGHT,
-    LEFT
+    LEFT;
+
+    private static final Direction[] DIRECTIONS = values(); // Shared, values() copies the array on every call
+
+    /**
+     * Returns the direction of an ordinal, used to decode moves stored as small ints.
+     *
+     * @param ordinal direction ordinal
+     * @return the direction
+     */
+    public static Direction of(int ordinal) {
+        return DIRECTIONS[ordinal];
+    }
+
+    /**
+     * Returns the ordinal of the direction that undoes a move in a given direction.
+     *
+     * @param ordinal direction ordinal
+     * @return ordinal of the opposite direction
+     */
+    public static int opposite(int ordinal) {
+        return ordinal ^ 1;
+    }
+
+    /**
+     * Returns the direction that undoes a move in this direction.
+     *
+     * @return the opposite direction
+     */
+    public Direction opposite() {
+        return DIRECTIONS[opposite(ordinal())];
+    }
 }
\ No newline at end of file
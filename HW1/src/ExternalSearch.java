@@ -0,0 +1,594 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.BooleanSupplier;
+
+/**
+ * An external memory search, which keeps its nodes in files instead of the heap.
+ * <p>
+ * The search is a breadth first iterative deepening search: every iteration searches the states whose path cost
+ * plus heuristic value is within a bound, one depth (layer) at a time, and the bound grows between iterations,
+ * so the solution found is a shortest one.
+ * Every layer is a file of fixed size records sorted by fingerprint, read and written sequentially.
+ * Generated children are collected in memory up to the memory budget, then sorted and written as a run file.
+ * The runs of a layer are merged into the next layer, dropping duplicates and the states of the previous layer
+ * (delayed duplicate detection). Every move of a sliding puzzle changes the parity of the depth,
+ * so a child can only repeat a state of the previous layer or of its own layer.
+ * <p>
+ * A record stores the move that created its state, so the solution path is found backwards from the goal,
+ * by undoing the move and looking the parent up in the previous layer with a binary search.
+ * Heap use is bounded by the memory budget, while the disk holds all layers of the current iteration.
+ */
+public class ExternalSearch {
+    private static final int FINGERPRINT_OFFSET = 0; // Record layout: fingerprint, packed evaluation, move, board
+    private static final int EVALUATION_OFFSET = 8;
+    private static final int MOVE_OFFSET = 16;
+    private static final int BOARD_OFFSET = 17;
+    private static final int IO_BUFFER_SIZE = 1 << 16; // Bytes read or written at a time per file
+    private static final int BYTES_PER_BUFFERED_RECORD = 8 + 24; // Sort key and fingerprint table slots, besides the record
+    private static final int STOP_CHECK_INTERVAL = 1024; // Expanded nodes between checks of the stop condition
+    private static final int INITIAL_BUFFERED_RECORDS = 1 << 12; // The buffer grows up to the memory budget
+
+    private final Heuristic heuristic;
+    private final long memoryBudget;
+    private final Path parentDirectory;
+    private final BooleanSupplier stopCondition;
+    private Path directory; // Holds the files of the current search
+    private Board root; // Initial board of the current search, copied to get boards of its size
+    private int recordSize;
+    private int fileCount;
+    private long expandedNodes;
+    private boolean stopped;
+
+    // Children of the current layer that were not written to a run yet
+    private byte[] children;
+    private long[] childKeys;
+    private FingerprintTable childSlots;
+    private int childCount;
+    private int maxChildCount; // Children buffered before they are written to a run
+    private final List<Path> runs = new ArrayList<>();
+
+    /**
+     * Constructs an ExternalSearch.
+     *
+     * @param heuristic heuristic used to prune the layers, should never overestimate
+     * @param memoryBudget largest number of heap bytes used for buffered nodes and file buffers
+     * @param directory directory the files are created in, they are deleted when the search ends
+     * @param stopCondition checked every few expanded nodes, the search stops once it returns true
+     * @throws IllegalArgumentException if memoryBudget is too small to hold a few nodes and file buffers
+     */
+    public ExternalSearch(Heuristic heuristic, long memoryBudget, Path directory, BooleanSupplier stopCondition) {
+        if (memoryBudget < 16 * IO_BUFFER_SIZE) {
+            throw new IllegalArgumentException("Memory budget must be at least " + 16 * IO_BUFFER_SIZE + " bytes: "
+                    + memoryBudget);
+        }
+        this.heuristic = heuristic;
+        this.memoryBudget = memoryBudget;
+        this.parentDirectory = directory;
+        this.stopCondition = stopCondition;
+    }
+
+    /**
+     * Searches for a shortest solution from a given board.
+     *
+     * @param root the initial board
+     * @param rootEvaluation packed heuristic evaluation of the initial board (see Heuristic.evaluatePacked)
+     * @return the moves of a shortest solution (direction ordinals), or null if there is no solution
+     *         or the search was stopped
+     * @throws IOException if a file could not be created, written or read
+     */
+    public byte[] search(Board root, long rootEvaluation) throws IOException {
+        this.root = root;
+        stopped = false;
+        recordSize = BOARD_OFFSET + root.getGeometry().getCells();
+        maxChildCount = (int) Math.min(Integer.MAX_VALUE / recordSize,
+                memoryBudget / 2 / (recordSize + BYTES_PER_BUFFERED_RECORD));
+        int bufferedRecords = Math.min(INITIAL_BUFFERED_RECORDS, maxChildCount);
+        children = new byte[bufferedRecords * recordSize];
+        childKeys = new long[bufferedRecords];
+        childSlots = new FingerprintTable(bufferedRecords, 0.75f);
+        directory = Files.createTempDirectory(parentDirectory, "external-search");
+        try {
+            int bound = heuristic.valueOf(rootEvaluation);
+            while (bound != Integer.MAX_VALUE) {
+                List<Path> layers = new ArrayList<>();
+                layers.add(writeRoot(rootEvaluation));
+                int nextBound = Integer.MAX_VALUE; // Smallest estimated cost that exceeded the bound
+                for (int depth = 0; ; depth++) {
+                    LayerResult layerResult = expandLayer(layers, depth, bound);
+                    if (stopped) {
+                        return null;
+                    }
+                    if (layerResult.goal != null) {
+                        return extractMoves(layers, depth, layerResult.goal);
+                    }
+                    nextBound = Math.min(nextBound, layerResult.nextBound);
+                    Path previous = depth == 0 ? null : layers.get(depth - 1);
+                    Path next = mergeRuns(previous);
+                    layers.add(next);
+                    if (Files.size(next) == 0) {
+                        break;
+                    }
+                }
+                for (Path layer : layers) {
+                    Files.delete(layer);
+                }
+                bound = nextBound;
+            }
+            return null;
+        } finally {
+            deleteDirectory();
+            children = null;
+            childKeys = null;
+            childSlots = null;
+            this.root = null;
+        }
+    }
+
+    /**
+     * Returns the number of nodes expanded by all iterations.
+     *
+     * @return number of expanded nodes
+     */
+    public long getExpandedNodes() {
+        return expandedNodes;
+    }
+
+    /**
+     * Checks if the last search was stopped by the stop condition before it ended.
+     *
+     * @return true if the search was stopped
+     */
+    public boolean isStopped() {
+        return stopped;
+    }
+
+    /**
+     * Writes the layer of depth 0, which holds the initial board.
+     *
+     * @param rootEvaluation packed heuristic evaluation of the initial board
+     * @return the layer file
+     * @throws IOException if the file could not be written
+     */
+    private Path writeRoot(long rootEvaluation) throws IOException {
+        Path layer = newFile();
+        try (RecordWriter writer = new RecordWriter(layer)) {
+            byte[] record = new byte[recordSize];
+            putRecord(record, 0, root, rootEvaluation, -1);
+            writer.write(record, 0);
+        }
+        return layer;
+    }
+
+    /**
+     * Expands every state of a layer whose children are within the bound, writing the children to runs.
+     * Children that undo the move of their parent are skipped.
+     *
+     * @param layers layer files of the current iteration
+     * @param depth depth of the layer to expand
+     * @param bound largest path cost plus heuristic value to keep
+     * @return a goal record if the layer has one, and the smallest estimated cost that exceeded the bound
+     * @throws IOException if a file could not be read or written
+     */
+    private LayerResult expandLayer(List<Path> layers, int depth, int bound) throws IOException {
+        LayerResult layerResult = new LayerResult();
+        Board board = new Board(root);  // Board of the record being expanded
+        Board child = new Board(root);  // Board of the child being generated
+        try (RecordReader reader = new RecordReader(layers.get(depth), IO_BUFFER_SIZE)) {
+            while (reader.next()) {
+                byte[] buffer = reader.array();
+                int offset = reader.offset();
+                board.unpack(buffer, offset + BOARD_OFFSET);
+                if (board.isInOrder()) {
+                    layerResult.goal = Arrays.copyOfRange(buffer, offset, offset + recordSize);
+                    return layerResult;
+                }
+                expandedNodes++;
+                if ((expandedNodes & (STOP_CHECK_INTERVAL - 1)) == 0 && stopCondition.getAsBoolean()) {
+                    stopped = true;
+                    return layerResult;
+                }
+                long evaluation = getLong(buffer, offset + EVALUATION_OFFSET);
+                int previousMove = buffer[offset + MOVE_OFFSET];
+                for (int move = 0; move < 4; move++) {
+                    if (!board.canSlide(move) || (previousMove >= 0 && move == Direction.opposite(previousMove))) {
+                        continue;  // No tile to move, or moving the same tile again undoes the previous move
+                    }
+                    child.copyFrom(board);
+                    child.slide(move);
+                    long childEvaluation = heuristic.evaluatePacked(board, child, evaluation);
+                    int estimatedCost = depth + 1 + heuristic.valueOf(childEvaluation);
+                    if (estimatedCost > bound) {
+                        layerResult.nextBound = Math.min(layerResult.nextBound, estimatedCost);
+                    } else {
+                        addChild(child, childEvaluation, move);
+                    }
+                }
+            }
+        }
+        if (childCount > 0) {
+            writeRun();
+        }
+        return layerResult;
+    }
+
+    /**
+     * Buffers a child, writing the buffer to a run when it is full.
+     * A child whose state is already buffered is dropped, all children of a layer have the same path cost.
+     *
+     * @param child board of the child
+     * @param childEvaluation packed heuristic evaluation of the child
+     * @param move move that created the child
+     * @throws IOException if a run could not be written
+     */
+    private void addChild(Board child, long childEvaluation, int move) throws IOException {
+        long fingerprint = child.getFingerprint();
+        if (childSlots.contains(fingerprint)) {
+            return;
+        }
+        putRecord(children, childCount * recordSize, child, childEvaluation, move);
+        childKeys[childCount] = fingerprint;
+        childSlots.put(fingerprint, childCount);
+        if (++childCount == maxChildCount) {
+            writeRun();
+        } else if (childCount == childKeys.length) {
+            int bufferedRecords = (int) Math.min(childKeys.length * 2L, maxChildCount);
+            children = Arrays.copyOf(children, bufferedRecords * recordSize);
+            childKeys = Arrays.copyOf(childKeys, bufferedRecords);
+        }
+    }
+
+    /**
+     * Sorts the buffered children by fingerprint and writes them to a new run.
+     *
+     * @throws IOException if the run could not be written
+     */
+    private void writeRun() throws IOException {
+        Arrays.sort(childKeys, 0, childCount);
+        Path run = newFile();
+        try (RecordWriter writer = new RecordWriter(run)) {
+            for (int i = 0; i < childCount; i++) {
+                writer.write(children, childSlots.get(childKeys[i], -1) * recordSize);
+            }
+        }
+        runs.add(run);
+        childCount = 0;
+        childSlots.clear();
+    }
+
+    /**
+     * Merges the runs of the current layer into the next layer.
+     * States that appear in several runs are kept once, and states of the previous layer are dropped.
+     * If there are more runs than file buffers fit in the memory budget, groups of runs are merged first.
+     *
+     * @param previous the previous layer, or null for the first layer
+     * @return the next layer file
+     * @throws IOException if a file could not be read or written
+     */
+    private Path mergeRuns(Path previous) throws IOException {
+        int maxOpenRuns = (int) Math.max(2, Math.min(1024, memoryBudget / 2 / IO_BUFFER_SIZE - 2));
+        while (runs.size() > maxOpenRuns) {
+            List<Path> group = new ArrayList<>(runs.subList(0, maxOpenRuns));
+            runs.subList(0, maxOpenRuns).clear();
+            runs.add(merge(group, null));
+        }
+        Path next = merge(runs, previous);
+        runs.clear();
+        return next;
+    }
+
+    /**
+     * Merges sorted files into a new sorted file, keeping every fingerprint once and deleting the merged files.
+     *
+     * @param files sorted files to merge
+     * @param excluded sorted file whose fingerprints are dropped, or null
+     * @return the merged file
+     * @throws IOException if a file could not be read or written
+     */
+    private Path merge(List<Path> files, Path excluded) throws IOException {
+        Path merged = newFile();
+        PriorityQueue<RecordReader> readers = new PriorityQueue<>(Math.max(1, files.size()),
+                (first, second) -> Long.compare(first.fingerprint(), second.fingerprint()));
+        RecordReader excludedReader = null;
+        try (RecordWriter writer = new RecordWriter(merged)) {
+            for (Path file : files) {
+                RecordReader reader = new RecordReader(file, IO_BUFFER_SIZE);
+                if (reader.next()) {
+                    readers.add(reader);
+                } else {
+                    reader.close();
+                }
+            }
+            if (excluded != null) {
+                excludedReader = new RecordReader(excluded, IO_BUFFER_SIZE);
+                if (!excludedReader.next()) {
+                    excludedReader.close();
+                    excludedReader = null;
+                }
+            }
+            boolean written = false;
+            long lastFingerprint = 0;
+            while (!readers.isEmpty()) {
+                RecordReader reader = readers.poll();
+                long fingerprint = reader.fingerprint();
+                while (excludedReader != null && excludedReader.fingerprint() < fingerprint) {
+                    if (!excludedReader.next()) {
+                        excludedReader.close();
+                        excludedReader = null;
+                    }
+                }
+                boolean isExcluded = excludedReader != null && excludedReader.fingerprint() == fingerprint;
+                if (!isExcluded && (!written || fingerprint != lastFingerprint)) {
+                    writer.write(reader.array(), reader.offset());
+                    written = true;
+                    lastFingerprint = fingerprint;
+                }
+                if (reader.next()) {
+                    readers.add(reader);
+                } else {
+                    reader.close();
+                }
+            }
+        } finally {
+            for (RecordReader reader : readers) {
+                reader.close();
+            }
+            if (excludedReader != null) {
+                excludedReader.close();
+            }
+        }
+        for (Path file : files) {
+            Files.delete(file);
+        }
+        return merged;
+    }
+
+    /**
+     * Finds the moves from the root to a goal record, by undoing moves and looking up the parents.
+     *
+     * @param layers layer files of the current iteration
+     * @param depth depth of the goal record
+     * @param goal the goal record
+     * @return the moves of the solution
+     * @throws IOException if a layer could not be read
+     */
+    private byte[] extractMoves(List<Path> layers, int depth, byte[] goal) throws IOException {
+        byte[] moves = new byte[depth];
+        byte[] record = goal;
+        Board board = new Board(root);
+        for (int d = depth; d > 0; d--) {
+            board.unpack(record, BOARD_OFFSET);
+            int move = record[MOVE_OFFSET];
+            moves[d - 1] = (byte) move;
+            board.slide(Direction.opposite(move));  // The parent board
+            record = findRecord(layers.get(d - 1), board.getFingerprint());
+            if (record == null) {
+                throw new IOException("Parent of a depth " + d + " state is missing from its layer");
+            }
+        }
+        return moves;
+    }
+
+    /**
+     * Finds the record of a fingerprint in a sorted layer file, using a binary search.
+     *
+     * @param layer the layer file
+     * @param fingerprint fingerprint of the state
+     * @return the record, or null if the layer does not hold the state
+     * @throws IOException if the layer could not be read
+     */
+    private byte[] findRecord(Path layer, long fingerprint) throws IOException {
+        try (FileChannel channel = FileChannel.open(layer, StandardOpenOption.READ)) {
+            ByteBuffer record = ByteBuffer.allocate(recordSize);
+            long low = 0;
+            long high = channel.size() / recordSize;
+            while (low < high) {
+                long middle = (low + high) >>> 1;
+                readFully(channel, record.clear(), middle * recordSize);
+                long middleFingerprint = record.getLong(FINGERPRINT_OFFSET);
+                if (middleFingerprint == fingerprint) {
+                    return record.array();
+                }
+                if (middleFingerprint < fingerprint) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Writes a record.
+     *
+     * @param buffer destination array
+     * @param offset index of the record in the array
+     * @param board board of the state
+     * @param evaluation packed heuristic evaluation of the state
+     * @param move move that created the state, or -1 for the root
+     */
+    private static void putRecord(byte[] buffer, int offset, Board board, long evaluation, int move) {
+        ByteBuffer.wrap(buffer, offset, BOARD_OFFSET).putLong(board.getFingerprint()).putLong(evaluation).put((byte) move);
+        board.pack(buffer, offset + BOARD_OFFSET);
+    }
+
+    /**
+     * Reads a big endian long from an array.
+     *
+     * @param buffer the array
+     * @param offset index of the first byte
+     * @return the long
+     */
+    private static long getLong(byte[] buffer, int offset) {
+        return ByteBuffer.wrap(buffer, offset, 8).getLong();
+    }
+
+    /**
+     * Creates a new empty file in the search directory.
+     *
+     * @return the file
+     * @throws IOException if the file could not be created
+     */
+    private Path newFile() throws IOException {
+        return Files.createFile(directory.resolve("nodes-" + fileCount++ + ".bin"));
+    }
+
+    /** Deletes the search directory and every file left in it. */
+    private void deleteDirectory() throws IOException {
+        runs.clear();
+        childCount = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    /**
+     * Writes all remaining bytes of a buffer to a channel.
+     *
+     * @param channel the channel
+     * @param buffer the buffer
+     * @throws IOException if the channel could not be written
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Fills a buffer from a channel, starting at a given position.
+     *
+     * @param channel the channel
+     * @param buffer the buffer
+     * @param position position in the channel
+     * @throws IOException if the channel could not be read or ends too early
+     */
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+        }
+    }
+
+    /** The outcome of expanding a layer. */
+    private static class LayerResult {
+        private byte[] goal; // Goal record found in the layer, or null
+        private int nextBound = Integer.MAX_VALUE; // Smallest estimated cost that exceeded the bound
+    }
+
+    /** Reads the records of a file in order, through a buffer. */
+    private class RecordReader implements AutoCloseable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer;
+        private int offset = -1; // Index of the current record in the buffer, -1 before the first record
+
+        /**
+         * Opens a file for reading.
+         *
+         * @param file the file
+         * @param bufferSize number of bytes read at a time, at least one record
+         * @throws IOException if the file could not be opened
+         */
+        RecordReader(Path file, int bufferSize) throws IOException {
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+            buffer = ByteBuffer.allocate(Math.max(1, bufferSize / recordSize) * recordSize);
+            buffer.flip();
+        }
+
+        /**
+         * Moves to the next record.
+         *
+         * @return false if there are no more records
+         * @throws IOException if the file could not be read
+         */
+        boolean next() throws IOException {
+            if (offset >= 0) {
+                buffer.position(offset + recordSize);
+            }
+            if (buffer.remaining() < recordSize) {
+                buffer.compact();
+                while (buffer.position() < recordSize && channel.read(buffer) >= 0) {
+                    // Keep reading until a whole record is buffered or the file ends
+                }
+                buffer.flip();
+                if (buffer.remaining() < recordSize) {
+                    return false;
+                }
+            }
+            offset = buffer.position();
+            return true;
+        }
+
+        long fingerprint() {
+            return buffer.getLong(offset + FINGERPRINT_OFFSET);
+        }
+
+        byte[] array() {
+            return buffer.array();
+        }
+
+        int offset() {
+            return offset;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /** Writes records to a file in order, through a buffer. */
+    private class RecordWriter implements AutoCloseable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(Math.max(1, IO_BUFFER_SIZE / recordSize) * recordSize);
+
+        /**
+         * Opens a file for writing.
+         *
+         * @param file the file
+         * @throws IOException if the file could not be opened
+         */
+        RecordWriter(Path file) throws IOException {
+            channel = FileChannel.open(file, StandardOpenOption.WRITE);
+        }
+
+        /**
+         * Writes a record.
+         *
+         * @param source array holding the record
+         * @param offset index of the record in the array
+         * @throws IOException if the file could not be written
+         */
+        void write(byte[] source, int offset) throws IOException {
+            if (buffer.remaining() < recordSize) {
+                buffer.flip();
+                writeFully(channel, buffer);
+                buffer.clear();
+            }
+            buffer.put(source, offset, recordSize);
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                buffer.flip();
+                writeFully(channel, buffer);
+            } finally {
+                channel.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,196 @@
+import java.util.Arrays;
+
+/**
+ * A hash map from 64-bit board fingerprints to int values, using open addressing with linear probing.
+ * Keys and values are kept in two primitive arrays, so an entry takes 12 bytes divided by the load factor,
+ * instead of the objects a HashMap needs per entry.
+ * Boards are identified by their fingerprint alone: two different boards with the same 64-bit fingerprint
+ * are treated as one, which is extremely unlikely for the number of boards a search can hold.
+ */
+public class FingerprintTable {
+    private static final int DEFAULT_CAPACITY = 1 << 16;
+    private static final float DEFAULT_LOAD_FACTOR = 0.75f;
+    private static final int MAX_CAPACITY = 1 << 30;
+    private static final long EMPTY = 0; // Marks a free slot, the key 0 itself is stored separately
+
+    private final float loadFactor;
+    private long[] keys;
+    private int[] values;
+    private int size; // Number of keys in the arrays, not counting the key 0
+    private int resizeThreshold;
+    private boolean hasZeroKey;
+    private int zeroKeyValue;
+
+    /** Constructs an empty FingerprintTable with default capacity and load factor. */
+    public FingerprintTable() {
+        this(DEFAULT_CAPACITY, DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Constructs an empty FingerprintTable sized for a number of keys.
+     *
+     * @param expectedSize number of keys the table should hold without resizing
+     * @param loadFactor largest fraction of slots used before the table grows, between 0 and 1 (exclusive)
+     * @throws IllegalArgumentException if expectedSize is negative or loadFactor is out of range
+     */
+    public FingerprintTable(int expectedSize, float loadFactor) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Negative size: " + expectedSize);
+        }
+        if (!(loadFactor > 0 && loadFactor < 1)) {
+            throw new IllegalArgumentException("Load factor must be between 0 and 1: " + loadFactor);
+        }
+        this.loadFactor = loadFactor;
+        long slots = (long) Math.ceil(expectedSize / (double) loadFactor) + 1;
+        int capacity = 2;
+        while (capacity < slots && capacity < MAX_CAPACITY) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    /**
+     * Checks if the table contains a key.
+     *
+     * @param key board fingerprint
+     * @return true if the key is in the table
+     */
+    public boolean contains(long key) {
+        if (key == EMPTY) {
+            return hasZeroKey;
+        }
+        return keys[slot(key)] == key;
+    }
+
+    /**
+     * Returns the value of a key.
+     *
+     * @param key board fingerprint
+     * @param defaultValue value returned if the key is not in the table
+     * @return value of the key, or defaultValue
+     */
+    public int get(long key, int defaultValue) {
+        if (key == EMPTY) {
+            return hasZeroKey ? zeroKeyValue : defaultValue;
+        }
+        int slot = slot(key);
+        return keys[slot] == key ? values[slot] : defaultValue;
+    }
+
+    /**
+     * Sets the value of a key, adding the key if it is not in the table.
+     *
+     * @param key board fingerprint
+     * @param value the value
+     * @throws OutOfMemoryError if the table is full and cannot grow any further
+     */
+    public void put(long key, int value) {
+        if (key == EMPTY) {
+            hasZeroKey = true;
+            zeroKeyValue = value;
+            return;
+        }
+        int slot = slot(key);
+        if (keys[slot] != key) {
+            keys[slot] = key;
+            if (++size > resizeThreshold) {
+                values[slot] = value;
+                resize();
+                return;
+            }
+        }
+        values[slot] = value;
+    }
+
+    /** Removes all keys, keeping the current capacity. */
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+        hasZeroKey = false;
+    }
+
+    /**
+     * Returns the number of keys in the table.
+     *
+     * @return number of keys
+     */
+    public int size() {
+        return size + (hasZeroKey ? 1 : 0);
+    }
+
+    /**
+     * Returns the number of slots in the table.
+     *
+     * @return number of slots
+     */
+    public int capacity() {
+        return keys.length;
+    }
+
+    /**
+     * Returns the largest fraction of slots used before the table grows.
+     *
+     * @return load factor
+     */
+    public float getLoadFactor() {
+        return loadFactor;
+    }
+
+    /**
+     * Finds the slot of a key, or the free slot where it would be added.
+     *
+     * @param key a non-zero key
+     * @return slot index
+     */
+    private int slot(long key) {
+        int mask = keys.length - 1;
+        int slot = (int) mix(key) & mask;
+        while (keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Spreads the bits of a key, so keys that differ only in their high bits use different slots.
+     *
+     * @param key the key
+     * @return mixed key
+     */
+    private static long mix(long key) {
+        long mixed = key * 0x9E3779B97F4A7C15L;
+        return mixed ^ (mixed >>> 32);
+    }
+
+    /**
+     * Allocates empty arrays.
+     *
+     * @param capacity number of slots, a power of 2
+     */
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        resizeThreshold = (int) Math.min(capacity - 1L, (long) (capacity * (double) loadFactor));
+    }
+
+    /**
+     * Doubles the number of slots and adds all keys again.
+     *
+     * @throws OutOfMemoryError if the table cannot grow any further, so searches end as out of memory
+     */
+    private void resize() {
+        if (keys.length == MAX_CAPACITY) {
+            throw new OutOfMemoryError("Fingerprint table is full");
+        }
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(keys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = slot(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,149 @@
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Represents the size of a board and the tables shared by all boards of that size:
+ * goal positions, neighboring cells, tile objects and Zobrist keys.
+ * Geometries are immutable and cached, so boards of different sizes can be used at the same time
+ * and all boards of the same size share one instance.
+ */
+public class Geometry {
+    private static final int MAX_CELLS = 256; // Largest board whose values fit in an unsigned byte
+    private static final long ZOBRIST_SEED = 0x5DEECE66DL; // Fixed so fingerprints are stable between runs
+    private static final Map<Long, Geometry> GEOMETRIES = new ConcurrentHashMap<>();
+
+    private final int rows, columns;
+    private final int[] goalRows, goalColumns; // Goal location of every tile value
+    private final int[] neighbors; // Cell of the tile that can move in each direction into each cell, or -1
+    private final Tile[] tileSet; // Shared tile objects, indexed by value
+    private final long[] zobristKeys; // Random key per (cell, value) pair
+
+    /**
+     * Constructs a Geometry and its tables.
+     *
+     * @param rows number of rows
+     * @param columns number of columns
+     */
+    private Geometry(int rows, int columns) {
+        this.rows = rows;
+        this.columns = columns;
+        int cells = rows * columns;
+
+        // Goal positions, the empty tile (0) belongs in the last cell
+        goalRows = new int[cells];
+        goalColumns = new int[cells];
+        for (int value = 0; value < cells; value++) {
+            int goalCell = value == 0 ? cells - 1 : value - 1;
+            goalRows[value] = goalCell / columns;
+            goalColumns[value] = goalCell % columns;
+        }
+
+        // Neighbors, in Direction order: the tile below moves up, above moves down, left moves right, right moves left
+        neighbors = new int[cells * 4];
+        for (int cell = 0; cell < cells; cell++) {
+            int row = cell / columns;
+            int column = cell % columns;
+            neighbors[cell * 4 + Direction.UP.ordinal()] = row < rows - 1 ? cell + columns : -1;
+            neighbors[cell * 4 + Direction.DOWN.ordinal()] = row > 0 ? cell - columns : -1;
+            neighbors[cell * 4 + Direction.RIGHT.ordinal()] = column > 0 ? cell - 1 : -1;
+            neighbors[cell * 4 + Direction.LEFT.ordinal()] = column < columns - 1 ? cell + 1 : -1;
+        }
+
+        tileSet = new Tile[cells];
+        for (int value = 0; value < cells; value++) {
+            tileSet[value] = new Tile(value);
+        }
+
+        SplittableRandom random = new SplittableRandom(ZOBRIST_SEED);
+        zobristKeys = new long[cells * cells];
+        for (int i = 0; i < zobristKeys.length; i++) {
+            zobristKeys[i] = random.nextLong();
+        }
+    }
+
+    /**
+     * Returns the geometry of a board size.
+     *
+     * @param rows number of rows
+     * @param columns number of columns
+     * @return the shared geometry
+     * @throws IllegalArgumentException if the size is not positive or the board has more than 256 cells
+     */
+    public static Geometry of(int rows, int columns) {
+        if (rows < 1 || columns < 1 || (long) rows * columns > MAX_CELLS) {
+            throw new IllegalArgumentException("Invalid board size: " + rows + "x" + columns
+                    + " (boards have at most " + MAX_CELLS + " cells)");
+        }
+        return GEOMETRIES.computeIfAbsent(((long) rows << 32) | columns, key -> new Geometry(rows, columns));
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * Returns the number of cells of the board.
+     *
+     * @return rows * columns
+     */
+    public int getCells() {
+        return goalRows.length;
+    }
+
+    /**
+     * Returns the row a tile should be on in the goal board.
+     *
+     * @param value tile value
+     * @return goal row
+     */
+    public int goalRow(int value) {
+        return goalRows[value];
+    }
+
+    /**
+     * Returns the column a tile should be on in the goal board.
+     *
+     * @param value tile value
+     * @return goal column
+     */
+    public int goalColumn(int value) {
+        return goalColumns[value];
+    }
+
+    /**
+     * Returns the cell of the tile that would move in a given direction into an empty cell.
+     *
+     * @param cell the empty cell (row * columns + column)
+     * @param direction direction ordinal
+     * @return cell of the moving tile, or -1 if no tile can move in that direction
+     */
+    public int neighbor(int cell, int direction) {
+        return neighbors[cell * 4 + direction];
+    }
+
+    /**
+     * Returns the shared tile object of a value.
+     *
+     * @param value tile value
+     * @return the tile
+     */
+    public Tile tile(int value) {
+        return tileSet[value];
+    }
+
+    /**
+     * Returns the Zobrist key of a value placed in a given cell.
+     *
+     * @param cell cell index (row * columns + column)
+     * @param value tile value
+     * @return random key of the pair
+     */
+    public long zobristKey(int cell, int value) {
+        return zobristKeys[cell * tileSet.length + value];
+    }
+}
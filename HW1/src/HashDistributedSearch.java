@@ -0,0 +1,201 @@
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Hash Distributed A* (HDA*), an A* search that runs on several threads.
+ * Every state is owned by one worker thread, chosen by the state's fingerprint.
+ * Each worker keeps its own frontier and visited states table, and generated nodes are sent to their owner
+ * through a lock-free queue, so workers never share a data structure other than the queues.
+ * The search ends when no node is left anywhere, and the shortest solution found is returned.
+ */
+public class HashDistributedSearch {
+    private static final int STOP_CHECK_INTERVAL = 1024; // Nodes a worker expands between checks of the stop condition
+
+    private final Heuristic heuristic;
+    private final BooleanSupplier stopCondition;
+    private volatile boolean stopped;
+    private final Worker[] workers;
+    private final AtomicLong pendingNodes = new AtomicLong(); // Nodes sent but not yet fully processed
+    private final AtomicReference<Node> bestGoal = new AtomicReference<>(); // Shortest solution found so far
+    private final AtomicReference<Throwable> failure = new AtomicReference<>(); // First error thrown by a worker
+
+    /**
+     * Constructs a HashDistributedSearch.
+     *
+     * @param threads number of worker threads
+     * @param heuristic heuristic used to create the nodes, should never overestimate
+     * @throws IllegalArgumentException if threads is smaller than 1
+     */
+    public HashDistributedSearch(int threads, Heuristic heuristic) {
+        this(threads, heuristic, () -> false);
+    }
+
+    /**
+     * Constructs a HashDistributedSearch that can be stopped before it ends.
+     *
+     * @param threads number of worker threads
+     * @param heuristic heuristic used to create the nodes, should never overestimate
+     * @param stopCondition checked by the workers every few expanded nodes, the search stops once it returns true
+     * @throws IllegalArgumentException if threads is smaller than 1
+     */
+    public HashDistributedSearch(int threads, Heuristic heuristic, BooleanSupplier stopCondition) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Number of threads must be positive: " + threads);
+        }
+        this.heuristic = heuristic;
+        this.stopCondition = stopCondition;
+        workers = new Worker[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Worker();
+        }
+    }
+
+    /**
+     * Searches for a shortest solution from a given root node.
+     *
+     * @param root The root node
+     * @return a goal node with the shortest path cost, or null if there is no solution or the search was stopped
+     * @throws OutOfMemoryError if a worker ran out of memory
+     */
+    public Node search(Node root) {
+        send(root);
+        Thread[] threads = new Thread[workers.length];
+        for (int i = 0; i < workers.length; i++) {
+            threads[i] = new Thread(workers[i], "hda-worker-" + i);
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            boolean joined = false;
+            while (!joined) {
+                try {
+                    thread.join();
+                    joined = true;
+                } catch (InterruptedException e) {
+                    failure.compareAndSet(null, e);  // Stop the workers, then keep waiting for them
+                }
+            }
+        }
+        Throwable error = failure.get();
+        if (error instanceof Error) {
+            throw (Error) error;
+        }
+        if (error instanceof RuntimeException) {
+            throw (RuntimeException) error;
+        }
+        if (error != null) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        return stopped ? null : bestGoal.get();
+    }
+
+    /**
+     * Checks if the last search was stopped by the stop condition before it ended.
+     *
+     * @return true if the search was stopped
+     */
+    public boolean isStopped() {
+        return stopped;
+    }
+
+    /**
+     * Returns the number of nodes expanded by all workers.
+     *
+     * @return number of expanded nodes
+     */
+    public long getExpandedNodes() {
+        long expandedNodes = 0;
+        for (Worker worker : workers) {
+            expandedNodes += worker.expandedNodes;
+        }
+        return expandedNodes;
+    }
+
+    /**
+     * Sends a node to the worker that owns its state.
+     *
+     * @param node The node
+     */
+    private void send(Node node) {
+        pendingNodes.incrementAndGet();  // Counted before it can be received, so the count never drops to 0 early
+        long fingerprint = node.getState().getFingerprint() * 0x9E3779B97F4A7C15L;
+        workers[(int) ((fingerprint >>> 32) * workers.length >>> 32)].inbox.add(node);
+    }
+
+    /**
+     * Returns the path cost of the best solution found so far.
+     *
+     * @return path cost, or Integer.MAX_VALUE if no solution was found
+     */
+    private int bestCost() {
+        Node goal = bestGoal.get();
+        return goal == null ? Integer.MAX_VALUE : goal.getPathCost();
+    }
+
+    /** A single worker thread, with its own frontier and visited states table. */
+    private class Worker implements Runnable {
+        private final Queue<Node> inbox = new ConcurrentLinkedQueue<>();  // Nodes sent by all workers
+        private final BucketQueue<Node> frontier = new BucketQueue<>();  // Owned nodes, ordered by path cost plus heuristic value
+        private final FingerprintTable reached = new FingerprintTable();  // Lowest path cost found to every owned state
+        private volatile long expandedNodes;
+
+        @Override
+        public void run() {
+            try {
+                while (failure.get() == null && !stopped) {
+                    receive();
+                    if (!frontier.isEmpty()) {
+                        expandNext();
+                    } else if (pendingNodes.get() == 0) {
+                        return;  // No node is left in any worker
+                    } else {
+                        Thread.onSpinWait();
+                    }
+                }
+            } catch (Throwable error) {
+                failure.compareAndSet(null, error);
+            }
+        }
+
+        /** Moves received nodes to the frontier, dropping nodes that are not better than a known path. */
+        private void receive() {
+            Node node;
+            while ((node = inbox.poll()) != null) {
+                long fingerprint = node.getState().getFingerprint();
+                if (node.getPathCost() < reached.get(fingerprint, Integer.MAX_VALUE)) {
+                    reached.put(fingerprint, node.getPathCost());
+                    frontier.add(node, node.getPathCost() + node.heuristicValue());
+                } else {
+                    pendingNodes.decrementAndGet();
+                }
+            }
+        }
+
+        /** Removes the node with the lowest estimated cost from the frontier and processes it. */
+        private void expandNext() {
+            Node node = frontier.remove();
+            if (node.getPathCost() <= reached.get(node.getState().getFingerprint(), Integer.MAX_VALUE)
+                    && node.getPathCost() + node.heuristicValue() < bestCost()) {  // Not stale and may improve the solution
+                if (node.getState().isGoal()) {
+                    Node best = bestGoal.get();
+                    while ((best == null || node.getPathCost() < best.getPathCost())
+                            && !bestGoal.compareAndSet(best, node)) {
+                        best = bestGoal.get();
+                    }
+                } else {
+                    expandedNodes++;
+                    if ((expandedNodes & (STOP_CHECK_INTERVAL - 1)) == 0 && stopCondition.getAsBoolean()) {
+                        stopped = true;
+                    }
+                    for (Node child : node.expand(heuristic)) {
+                        send(child);
+                    }
+                }
+            }
+            pendingNodes.decrementAndGet();
+        }
+    }
+}
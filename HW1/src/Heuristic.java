@@ -0,0 +1,104 @@
+/**
+ * Estimates the number of moves remaining to get from a board to the goal board.
+ * Implementations that never overestimate the actual number of moves keep the A* and IDA* solutions shortest.
+ * <p>
+ * The searches call the full evaluation for the initial board only, and the incremental evaluation for every
+ * board they generate, so a heuristic that overrides it (see ManhattanHeuristic, LinearConflictHeuristic and
+ * PatternDatabase) only pays for what a single move changes. Heuristics are shared by the threads of a parallel
+ * search, so implementations must be safe to call from several threads.
+ * <p>
+ * The searches keep a packed evaluation of every node rather than its value, and pass it to the incremental
+ * evaluation of the node's children (see evaluatePacked). By default it is the value itself, and a heuristic that
+ * needs more than its value to update, such as the evaluations of the heuristics combined by max(), packs what it
+ * needs in evaluationBits() bits.
+ * Heuristics are combined with max().
+ */
+public interface Heuristic {
+    /** Bits of a heuristic value in a packed evaluation, larger values cannot be packed with others. */
+    int VALUE_BITS = 15;
+
+    /**
+     * Calculate the heuristic value of a board.
+     *
+     * @param board the board
+     * @return heuristic value
+     */
+    int evaluate(Board board);
+
+    /**
+     * Calculate the heuristic value of a board that was created by sliding a single tile of a parent board.
+     * Must return the same value as evaluate(child), given that parentValue is the value this heuristic returned
+     * for the parent. The moved tile stands in the parent's empty cell of the child, so implementations can update
+     * the parent value in O(1) or O(row) time. The default evaluates the child in full.
+     *
+     * @param parent the board before the tile was moved
+     * @param child the board after the tile was moved
+     * @param parentValue heuristic value of the parent board
+     * @return heuristic value of the child board
+     */
+    default int evaluate(Board parent, Board child, int parentValue) {
+        return evaluate(child);
+    }
+
+    /**
+     * Calculate the packed evaluation of a board, which holds its heuristic value (see valueOf) and whatever the
+     * incremental evaluation of its children needs. Packed evaluations are never negative, since the searches mark
+     * nodes with negative values. The default packs the heuristic value alone.
+     *
+     * @param board the board
+     * @return packed evaluation
+     */
+    default long evaluatePacked(Board board) {
+        return evaluate(board);
+    }
+
+    /**
+     * Calculate the packed evaluation of a board that was created by sliding a single tile of a parent board.
+     * Must return the same evaluation as evaluatePacked(child), given that parentEvaluation is the evaluation this
+     * heuristic returned for the parent. The default updates the heuristic value with evaluate(parent, child, int).
+     *
+     * @param parent the board before the tile was moved
+     * @param child the board after the tile was moved
+     * @param parentEvaluation packed evaluation of the parent board
+     * @return packed evaluation of the child board
+     */
+    default long evaluatePacked(Board parent, Board child, long parentEvaluation) {
+        return evaluate(parent, child, valueOf(parentEvaluation));
+    }
+
+    /**
+     * Returns the heuristic value of a packed evaluation.
+     *
+     * @param evaluation packed evaluation returned by this heuristic
+     * @return heuristic value
+     */
+    default int valueOf(long evaluation) {
+        return (int) evaluation;
+    }
+
+    /**
+     * Returns the number of bits the packed evaluations of this heuristic take, so that max() can pack the
+     * evaluations of several heuristics into one. The default is VALUE_BITS, for evaluations that are the value.
+     *
+     * @return bits of the packed evaluations
+     */
+    default int evaluationBits() {
+        return VALUE_BITS;
+    }
+
+    /**
+     * Combines heuristics into one whose value is the largest of their values.
+     * The maximum of heuristics that never overestimate never overestimates either, and is at least as large
+     * as each of them.
+     *
+     * @param heuristics the heuristics to combine, at least one
+     * @return the combined heuristic, or the heuristic itself if there is only one
+     * @throws IllegalArgumentException if no heuristics are given
+     */
+    static Heuristic max(Heuristic... heuristics) {
+        if (heuristics.length == 1) {
+            return heuristics[0];
+        }
+        return new MaxHeuristic(heuristics);
+    }
+}
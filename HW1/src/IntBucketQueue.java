@@ -0,0 +1,126 @@
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A priority queue of int elements for small non-negative integer priorities.
+ * Elements are kept in an array of stacks (buckets) indexed by priority,
+ * so adding is O(1) and removing the minimum is amortized O(1). The stacks are primitive arrays, so adding an
+ * element never allocates an object. Used for frontiers of node indices (see NodeArena), and by BucketQueue to
+ * order the slots of its elements.
+ * Elements with equal priorities are removed in LIFO order.
+ */
+public class IntBucketQueue {
+    private static final int DEFAULT_BUCKETS = 64;
+    private static final int DEFAULT_BUCKET_CAPACITY = 16;
+    private static final int MAX_BUCKETS = 1 << 30; // Largest number of buckets, priorities must be below it
+
+    private int[][] buckets;
+    private int[] sizes; // Number of elements in each bucket
+    private int minPriority; // No bucket below this index holds elements
+    private int size;
+
+    /** Constructs an empty IntBucketQueue. */
+    public IntBucketQueue() {
+        buckets = new int[DEFAULT_BUCKETS][];
+        sizes = new int[DEFAULT_BUCKETS];
+        minPriority = DEFAULT_BUCKETS;
+    }
+
+    /**
+     * Adds an element with a given priority.
+     *
+     * @param element the element to add
+     * @param priority priority of the element, lower values are removed first
+     * @throws IllegalArgumentException if priority is negative or not below MAX_BUCKETS
+     */
+    public void add(int element, int priority) {
+        if (priority < 0) {
+            throw new IllegalArgumentException("Negative priority: " + priority);
+        }
+        if (priority >= MAX_BUCKETS) {
+            throw new IllegalArgumentException("Priority too large: " + priority);
+        }
+        if (priority >= buckets.length) {
+            growBuckets(priority);
+        }
+        int[] bucket = buckets[priority];
+        if (bucket == null) {
+            bucket = new int[DEFAULT_BUCKET_CAPACITY];
+            buckets[priority] = bucket;
+        } else if (sizes[priority] == bucket.length) {
+            bucket = Arrays.copyOf(bucket, bucket.length * 2);
+            buckets[priority] = bucket;
+        }
+        bucket[sizes[priority]++] = element;
+        if (priority < minPriority) {
+            minPriority = priority;
+        }
+        size++;
+    }
+
+    /**
+     * Removes an element with the lowest priority.
+     *
+     * @return the removed element
+     * @throws NoSuchElementException if the queue is empty
+     */
+    public int remove() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        while (sizes[minPriority] == 0) {
+            minPriority++;
+        }
+        size--;
+        return buckets[minPriority][--sizes[minPriority]];
+    }
+
+    /**
+     * Returns the lowest priority in the queue.
+     *
+     * @return lowest priority
+     * @throws NoSuchElementException if the queue is empty
+     */
+    public int minPriority() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        while (sizes[minPriority] == 0) {
+            minPriority++;
+        }
+        return minPriority;
+    }
+
+    /**
+     * Returns the number of elements in the queue.
+     *
+     * @return the number of elements
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks if the queue is empty.
+     *
+     * @return true if the queue has no elements
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Makes room for buckets up to a given priority.
+     *
+     * @param priority the highest priority that should fit
+     */
+    private void growBuckets(int priority) {
+        long length = buckets.length;
+        while (length <= priority) {
+            length *= 2;
+        }
+        length = Math.min(length, MAX_BUCKETS);
+        buckets = Arrays.copyOf(buckets, (int) length);
+        sizes = Arrays.copyOf(sizes, (int) length);
+    }
+}
@@ -0,0 +1,140 @@
+/**
+ * The Manhattan distance plus linear conflicts heuristic.
+ * Tiles in their goal row whose goal columns are out of order cannot pass each other inside the row, so all but
+ * the longest sequence of them already in order have to leave the row and come back, two moves beyond their
+ * Manhattan distance. The same holds for columns, and a tile is in at most one goal row and one goal column,
+ * so the extra moves can be added and the heuristic never overestimates.
+ * <p>
+ * The incremental evaluation only recalculates the distance of the moved tile and the conflicts of the rows and
+ * column (or columns and row) the move affects. Lines of up to 64 tiles are counted in a bit mask, without
+ * allocating.
+ */
+public class LinearConflictHeuristic implements Heuristic {
+
+    @Override
+    public int evaluate(Board board) {
+        Geometry geometry = board.getGeometry();
+        int totalDistance = 0;
+        int conflicts = 0;
+
+        for (int i = 0; i < geometry.getRows(); i++) {
+            for (int j = 0; j < geometry.getColumns(); j++) {
+                totalDistance += ManhattanHeuristic.distanceFromGoal(geometry, board.getValue(i, j), i, j);
+            }
+        }
+        for (int i = 0; i < geometry.getRows(); i++) {
+            conflicts += lineConflicts(board, i, true);
+        }
+        for (int j = 0; j < geometry.getColumns(); j++) {
+            conflicts += lineConflicts(board, j, false);
+        }
+        return totalDistance + (2 * conflicts);
+    }
+
+    @Override
+    public int evaluate(Board parent, Board child, int parentValue) {
+        Geometry geometry = child.getGeometry();
+        // The moved tile now stands where the empty tile used to be
+        int toRow = parent.getEmptyTileRow();
+        int toColumn = parent.getEmptyTileColumn();
+        int fromRow = child.getEmptyTileRow();
+        int fromColumn = child.getEmptyTileColumn();
+        int value = child.getValue(toRow, toColumn);
+
+        int distanceChange = ManhattanHeuristic.distanceFromGoal(geometry, value, toRow, toColumn)
+                - ManhattanHeuristic.distanceFromGoal(geometry, value, fromRow, fromColumn);
+        int conflictsChange;
+        if (fromRow != toRow) { // Vertical move
+            conflictsChange = lineConflicts(child, fromRow, true) + lineConflicts(child, toRow, true)
+                    + lineConflicts(child, toColumn, false) - lineConflicts(parent, fromRow, true)
+                    - lineConflicts(parent, toRow, true) - lineConflicts(parent, toColumn, false);
+        } else { // Horizontal move
+            conflictsChange = lineConflicts(child, fromColumn, false) + lineConflicts(child, toColumn, false)
+                    + lineConflicts(child, toRow, true) - lineConflicts(parent, fromColumn, false)
+                    - lineConflicts(parent, toColumn, false) - lineConflicts(parent, toRow, true);
+        }
+        return parentValue + distanceChange + (2 * conflictsChange);
+    }
+
+    /**
+     * Count the tiles that have to leave a row (or column) so the other tiles in their goal line can pass each other.
+     * Each of these tiles needs at least two moves beyond its Manhattan distance.
+     *
+     * @param board the board
+     * @param line row or column index
+     * @param row true for a row, false for a column
+     * @return number of conflicting tiles in the line
+     */
+    private static int lineConflicts(Board board, int line, boolean row) {
+        Geometry geometry = board.getGeometry();
+        int length = row ? geometry.getColumns() : geometry.getRows();
+        if (length > Long.SIZE) {
+            return longLineConflicts(board, line, row);
+        }
+        int count = 0;
+        long tails = 0; // Smallest last goal position of an increasing sequence of every length, as a bit set
+        for (int k = 0; k < length; k++) {
+            int value = row ? board.getValue(line, k) : board.getValue(k, line);
+            if (value != 0 && (row ? geometry.goalRow(value) : geometry.goalColumn(value)) == line) {
+                int goal = row ? geometry.goalColumn(value) : geometry.goalRow(value);
+                long higher = tails & (-1L << goal); // The goal replaces the smallest tail above it, if any
+                tails = (tails & ~Long.lowestOneBit(higher)) | (1L << goal);
+                count++;
+            }
+        }
+        return count - Long.bitCount(tails);
+    }
+
+    /**
+     * Count the conflicting tiles of a line longer than 64 tiles (see lineConflicts).
+     *
+     * @param board the board
+     * @param line row or column index
+     * @param row true for a row, false for a column
+     * @return number of conflicting tiles in the line
+     */
+    private static int longLineConflicts(Board board, int line, boolean row) {
+        Geometry geometry = board.getGeometry();
+        int length = row ? geometry.getColumns() : geometry.getRows();
+        int[] goals = new int[length]; // Goal positions of the tiles that are in their goal line
+        int count = 0;
+        for (int k = 0; k < length; k++) {
+            int value = row ? board.getValue(line, k) : board.getValue(k, line);
+            if (value != 0 && (row ? geometry.goalRow(value) : geometry.goalColumn(value)) == line) {
+                goals[count++] = row ? geometry.goalColumn(value) : geometry.goalRow(value);
+            }
+        }
+        return count - longestIncreasingSequence(goals, count);
+    }
+
+    /**
+     * Calculate the length of the longest increasing subsequence of an array prefix.
+     * The values in the prefix are distinct.
+     * The array is overwritten.
+     *
+     * @param values the values
+     * @param count length of the prefix
+     * @return length of the longest increasing subsequence
+     */
+    private static int longestIncreasingSequence(int[] values, int count) {
+        int length = 0; // values[0..length) holds the smallest tail of each subsequence length
+        for (int i = 0; i < count; i++) {
+            int value = values[i];
+            int low = 0;
+            int high = length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (values[middle] < value) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            values[low] = value;
+            if (low == length) {
+                length++;
+            }
+        }
+        return length;
+    }
+}
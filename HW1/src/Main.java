@@ -1,3 +1,5 @@
+import java.util.Arrays;
+
 public class Main {
         public static void main(String[] args) {
         String[] boards = {"_ 1",
@@ -15,51 +17,45 @@ public class Main {
                            "2 3 8 4 14 13 6|16 9 17 _ 10 5 7|1 11 15 18 12 19 20",
                            "1 2 23 5 21 14 7 6 16|10 11 3 22 15 35 9 34 _|28 20 13 31 4 33 26 17 8|29 19 12 32 30 24 18 27 25"};
         int successCounter = 0;
-        for (String boardString : boards) {
-            boolean success = searchOnce(boardString);
-            if (success) {
-                successCounter++;
-            }
+        // One board at a time, so every search has the whole heap and the results are printed in the input order
+        try (BatchSolver solver = new BatchSolver(1, Search.Strategy.GREEDY, 60000)) {  // At most 60 seconds per board
+            successCounter = solver.solveAll(Arrays.asList(boards), Main::printResult);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
         System.out.println("Able to solve " + successCounter + " ot of " + boards.length + " boards.");
     }
 
     /**
-     * Performs a single search on a given initial board.
+     * Prints the result of a single search.
      *
-     * @param boardString String representing an initial board
-     * @return true if a solution was found and false otherwise
+     * @param result result of the search on an initial board
      */
-    private static boolean searchOnce(String boardString) {
-        Search search = new Search();
-        Thread t = new Thread(() -> search.search(boardString));
-        t.start();  // Start searching for a solution
-        try {
-            t.join(60000);  // Wait for (at most) 60 seconds
-        } catch (InterruptedException e) {
-        }
-        boolean success = false;
-        if (t.isAlive()) {  // The search is not over
-            t.stop();
-            System.out.println("Timout occurred...");
-        } else {  // The search is over
-            Search.Status searchStatus = search.getStatus();
-            switch (searchStatus) {
-                case SOLVED:
-                    System.out.println("Solution length: " + search.getResult().size());
-                    System.out.println(search.getResult());
-                    success = true;
-                    break;
-                case UNSOLVABLE:
-                    System.out.println("Unsolvable board...");
-                    break;
-                case OUT_OF_MEMORY:
-                    System.out.println("Out of memory while searching...");
-                    break;
-            }
+    private static void printResult(BatchSolver.Result result) {
+        System.out.println("Board: " + result.getBoardString());
+        switch (result.getStatus()) {
+            case SOLVED:
+                System.out.println("Solution length: " + result.getSolution().size());
+                System.out.println(result.getSolution());
+                break;
+            case UNSOLVABLE:
+                System.out.println("Unsolvable board...");
+                break;
+            case OUT_OF_MEMORY:
+                System.out.println("Out of memory while searching...");
+                break;
+            case TIMEOUT:
+                System.out.println("Timout occurred...");
+                break;
+            case CANCELLED:
+                System.out.println("Search cancelled...");
+                break;
+            case INVALID:
+                System.out.println("Invalid board: " + result.getError());
+                break;
         }
-        System.out.println("Number of expanded nodes: " + search.getExpandedNodes());
+        System.out.println("Number of expanded nodes: " + result.getExpandedNodes());
+        System.out.println("Search time: " + result.getElapsedTime() + " ms");
         System.out.println("----------------------------------------------------------------------");
-        return success;
     }
 }
\ No newline at end of file
@@ -0,0 +1,45 @@
+/**
+ * The Manhattan distance heuristic: the sum of the distances of all tiles from their goal cells,
+ * counted in rows plus columns. Every move slides one tile by one cell, so it never overestimates.
+ * The incremental evaluation only recalculates the distance of the moved tile.
+ */
+public class ManhattanHeuristic implements Heuristic {
+
+    @Override
+    public int evaluate(Board board) {
+        Geometry geometry = board.getGeometry();
+        int distance = 0;
+        for (int i = 0; i < geometry.getRows(); i++) {
+            for (int j = 0; j < geometry.getColumns(); j++) {
+                distance += distanceFromGoal(geometry, board.getValue(i, j), i, j);
+            }
+        }
+        return distance;
+    }
+
+    @Override
+    public int evaluate(Board parent, Board child, int parentValue) {
+        // The moved tile now stands where the empty tile used to be
+        int toRow = parent.getEmptyTileRow();
+        int toColumn = parent.getEmptyTileColumn();
+        int value = child.getValue(toRow, toColumn);
+        return parentValue + distanceFromGoal(child.getGeometry(), value, toRow, toColumn)
+                - distanceFromGoal(child.getGeometry(), value, child.getEmptyTileRow(), child.getEmptyTileColumn());
+    }
+
+    /**
+     * Calculate the Manhattan distance of a tile from its goal position.
+     *
+     * @param geometry size of the board
+     * @param value tile value
+     * @param row current row of the tile
+     * @param column current column of the tile
+     * @return distance from goal position, 0 for the empty tile
+     */
+    static int distanceFromGoal(Geometry geometry, int value, int row, int column) {
+        if (value == 0) { // Empty tile
+            return 0;
+        }
+        return Helper.absolute(row - geometry.goalRow(value)) + Helper.absolute(column - geometry.goalColumn(value));
+    }
+}
@@ -0,0 +1,143 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The largest value of several heuristics (see Heuristic.max).
+ * <p>
+ * The packed evaluation holds the packed evaluation of every heuristic, each in a field of its evaluationBits()
+ * bits, so the incremental evaluation updates every heuristic with its own incremental packed evaluation, and
+ * heuristics that keep more than their value (such as WalkingDistanceHeuristic) keep it inside the combination too.
+ * Combined MaxHeuristics are flattened into their heuristics. When the fields take more than the 63 bits of a
+ * packed evaluation, the packed evaluation is only the maximum, and children are evaluated in full. So is the
+ * child in evaluate(Board, Board, int), since the maximum does not tell the value of each heuristic.
+ */
+public class MaxHeuristic implements Heuristic {
+    private static final int PACKED_BITS = Long.SIZE - 1;  // A packed evaluation is never negative
+
+    private final Heuristic[] heuristics;
+    private final int[] shifts;  // Position of the field of every heuristic in a packed evaluation
+    private final long[] masks;  // Mask of the field of every heuristic, after shifting it down
+    private final int bits;  // Bits of all fields
+    private final boolean packed;  // The packed evaluation holds the evaluation of every heuristic
+
+    /**
+     * Constructs a MaxHeuristic.
+     *
+     * @param heuristics the heuristics to combine, at least one
+     * @throws IllegalArgumentException if no heuristics are given
+     */
+    public MaxHeuristic(Heuristic... heuristics) {
+        if (heuristics.length == 0) {
+            throw new IllegalArgumentException("At least one heuristic is needed");
+        }
+        List<Heuristic> flattened = new ArrayList<>();
+        for (Heuristic heuristic : heuristics) {
+            if (heuristic instanceof MaxHeuristic) {
+                Collections.addAll(flattened, ((MaxHeuristic) heuristic).heuristics);
+            } else {
+                flattened.add(heuristic);
+            }
+        }
+        this.heuristics = flattened.toArray(new Heuristic[0]);
+        shifts = new int[this.heuristics.length];
+        masks = new long[this.heuristics.length];
+        int shift = 0;
+        for (int i = 0; i < this.heuristics.length; i++) {
+            int fieldBits = Math.min(this.heuristics[i].evaluationBits(), PACKED_BITS);
+            shifts[i] = shift;
+            masks[i] = (1L << fieldBits) - 1;
+            shift += fieldBits;
+        }
+        packed = shift <= PACKED_BITS;
+        bits = packed ? shift : VALUE_BITS;
+    }
+
+    @Override
+    public int evaluate(Board board) {
+        int value = heuristics[0].evaluate(board);
+        for (int i = 1; i < heuristics.length; i++) {
+            value = Math.max(value, heuristics[i].evaluate(board));
+        }
+        return value;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalStateException if the evaluation of a heuristic does not fit in its evaluationBits() bits
+     */
+    @Override
+    public long evaluatePacked(Board board) {
+        if (!packed) {
+            return evaluate(board);
+        }
+        long evaluation = 0;
+        for (int i = 0; i < heuristics.length; i++) {
+            evaluation = pack(evaluation, i, heuristics[i].evaluatePacked(board));
+        }
+        return evaluation;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalStateException if the evaluation of a heuristic does not fit in its evaluationBits() bits
+     */
+    @Override
+    public long evaluatePacked(Board parent, Board child, long parentEvaluation) {
+        if (!packed) {
+            return evaluate(child);
+        }
+        long evaluation = 0;
+        for (int i = 0; i < heuristics.length; i++) {
+            long parentField = parentEvaluation >>> shifts[i] & masks[i];
+            evaluation = pack(evaluation, i, heuristics[i].evaluatePacked(parent, child, parentField));
+        }
+        return evaluation;
+    }
+
+    @Override
+    public int valueOf(long evaluation) {
+        if (!packed) {
+            return (int) evaluation;
+        }
+        int value = heuristics[0].valueOf(evaluation & masks[0]);
+        for (int i = 1; i < heuristics.length; i++) {
+            value = Math.max(value, heuristics[i].valueOf(evaluation >>> shifts[i] & masks[i]));
+        }
+        return value;
+    }
+
+    @Override
+    public int evaluationBits() {
+        return bits;
+    }
+
+    /**
+     * Returns the combined heuristics, with combined MaxHeuristics replaced by their heuristics.
+     *
+     * @return unmodifiable list of the heuristics
+     */
+    public List<Heuristic> getHeuristics() {
+        return Collections.unmodifiableList(Arrays.asList(heuristics));
+    }
+
+    /**
+     * Adds the packed evaluation of a heuristic to a packed evaluation.
+     *
+     * @param evaluation packed evaluation of the heuristics before the index
+     * @param index index of the heuristic
+     * @param heuristicEvaluation packed evaluation of the heuristic
+     * @return packed evaluation with the evaluation of the heuristic
+     * @throws IllegalStateException if the evaluation does not fit in the field of the heuristic
+     */
+    private long pack(long evaluation, int index, long heuristicEvaluation) {
+        if ((heuristicEvaluation & ~masks[index]) != 0) {
+            throw new IllegalStateException("Heuristic evaluation does not fit in a packed evaluation: "
+                    + heuristicEvaluation);
+        }
+        return evaluation | heuristicEvaluation << shifts[index];
+    }
+}
@@ -1,33 +1,47 @@
 /**
  * Represents a single Node.
- * Consists of information about the state, parent node and previous action.
+ * Consists of information about the state, parent node and previous move.
+ * The previous move is stored as a direction ordinal, and its Action object is only created on request.
+ * The heuristic value of the state is calculated once, when the node is created, together with the packed
+ * evaluation its children are evaluated from (see Heuristic.evaluatePacked).
+ * The path cost is the number of actions performed to get from the root to the node.
  */
 public class Node {
 
     private final State state;
-    private final Action action;
+    private final byte move; // Direction ordinal of the previous move, or -1 for the root
     private final Node parent;
+    private final long evaluation;
+    private final int heuristicValue;
+    private final int pathCost;
 
     /**
      * Constructor for the root node.
      *
      * @param state initial state
+     * @param heuristic heuristic used to estimate the distance of the state from the goal state
      */
-    public Node(State state) {
-        this(state, null, null);
+    public Node(State state, Heuristic heuristic) {
+        this(state, -1, null, state.getEvaluation(heuristic), heuristic, 0);
     }
 
     /**
      * Constructor for expanded nodes.
      *
      * @param state new state
-     * @param action previous action
+     * @param move previous move
      * @param parent parent node
+     * @param evaluation packed heuristic evaluation of the new state
+     * @param heuristic the heuristic that made the evaluation
+     * @param pathCost number of actions from the root to the new state
      */
-    private Node(State state, Action action, Node parent) {
+    private Node(State state, int move, Node parent, long evaluation, Heuristic heuristic, int pathCost) {
         this.state = state;
-        this.action = action;
+        this.move = (byte) move;
         this.parent = parent;
+        this.evaluation = evaluation;
+        this.heuristicValue = heuristic.valueOf(evaluation);
+        this.pathCost = pathCost;
     }
 
     /**
@@ -41,11 +55,21 @@ public class Node {
 
     /**
      * Returns the action performed to get from the previous state to the current state.
+     * A new Action object is created on every call.
      *
-     * @return previous action
+     * @return previous action, or null for the root
      */
     public Action getAction() {
-        return action;
+        return parent == null ? null : parent.state.action(move);
+    }
+
+    /**
+     * Returns the move performed to get from the previous state to the current state.
+     *
+     * @return direction ordinal of the previous move, or -1 for the root
+     */
+    public int getMove() {
+        return move;
     }
 
     /**
@@ -60,13 +84,24 @@ public class Node {
     /**
      * Expands the current node.
      *
+     * @param heuristic the heuristic the current node was created with
      * @return array of all nodes resulted from expansion
      */
-    public Node[] expand() {
-        Action[] actions = state.actions();
-        Node[] expandedNodes = new Node[actions.length];
-        for (int i = 0; i < expandedNodes.length; i++) {
-            expandedNodes[i] = new Node(state.result(actions[i]), actions[i], this);
+    public Node[] expand(Heuristic heuristic) {
+        int size = 0;
+        for (int move = 0; move < 4; move++) {
+            if (state.canMove(move)) {
+                size++;
+            }
+        }
+        Node[] expandedNodes = new Node[size];
+        int index = 0;
+        for (int move = 0; move < 4; move++) {
+            if (state.canMove(move)) {
+                State childState = state.result(move);
+                long childEvaluation = childState.getEvaluation(heuristic, state, evaluation);
+                expandedNodes[index++] = new Node(childState, move, this, childEvaluation, heuristic, pathCost + 1);
+            }
         }
         return expandedNodes;
     }
@@ -79,6 +114,25 @@ public class Node {
      * @return heuristic value of current node
      */
     public int heuristicValue() {
-        return state.getHeuristicValue();
+        return heuristicValue;
+    }
+
+    /**
+     * Returns the packed heuristic evaluation of the current state in the node.
+     * To be passed on to searches that evaluate the children of the node incrementally.
+     *
+     * @return packed heuristic evaluation of current node
+     */
+    public long getEvaluation() {
+        return evaluation;
+    }
+
+    /**
+     * Returns the number of actions performed to get from the root to the current node.
+     *
+     * @return path cost of current node
+     */
+    public int getPathCost() {
+        return pathCost;
     }
 }
@@ -0,0 +1,155 @@
+import java.util.Arrays;
+
+/**
+ * Stores the nodes of a search tree as indices into parallel primitive arrays (struct of arrays),
+ * instead of one Node object per node.
+ * Every node takes a link (parent index and move, packed in an int), its path cost, its packed heuristic
+ * evaluation and its board packed one byte per cell, so a node on a 4x4 board takes 32 bytes
+ * instead of the Node, State, Board and tile array objects, and the garbage collector has no pointers to follow.
+ * A node's board is read back into a reusable Board with loadBoard().
+ */
+public class NodeArena {
+    public static final int NO_PARENT = -1; // Parent index of a root node
+    private static final int MAX_NODES = 1 << 29; // Largest index that fits in a link next to a 2-bit move
+    private static final int MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8; // Largest array most JVMs can allocate
+    private static final int DEFAULT_CAPACITY = 1 << 10;
+
+    private final Geometry geometry;
+    private final int cells;
+    private final int maxNodes;
+    private int[] links; // parent index << 2 | move
+    private int[] pathCosts;
+    private long[] evaluations; // Packed heuristic evaluations (see Heuristic.evaluatePacked)
+    private byte[] boards; // Board of node i starts at i * cells
+    private int size;
+
+    /**
+     * Constructs an empty NodeArena for boards of a given size.
+     *
+     * @param geometry size of the boards
+     * @param expectedNodes number of nodes the arena holds before it has to grow
+     * @throws IllegalArgumentException if expectedNodes is negative
+     */
+    public NodeArena(Geometry geometry, int expectedNodes) {
+        if (expectedNodes < 0) {
+            throw new IllegalArgumentException("Negative number of nodes: " + expectedNodes);
+        }
+        this.geometry = geometry;
+        cells = geometry.getCells();
+        maxNodes = Math.min(MAX_NODES, MAX_ARRAY_LENGTH / cells);
+        int capacity = Math.min(Math.max(expectedNodes, DEFAULT_CAPACITY), maxNodes);
+        links = new int[capacity];
+        pathCosts = new int[capacity];
+        evaluations = new long[capacity];
+        boards = new byte[capacity * cells];
+    }
+
+    /**
+     * Adds a node.
+     *
+     * @param parent index of the parent node, or NO_PARENT for a root node
+     * @param move direction ordinal of the move from the parent board (ignored for a root node)
+     * @param board board of the node, which is copied
+     * @param pathCost number of moves from the root
+     * @param evaluation packed heuristic evaluation of the board, or any other value the search keeps per node
+     * @return index of the new node
+     * @throws IllegalArgumentException if the board does not have the arena's size
+     * @throws OutOfMemoryError if the arena is full and cannot grow any further
+     */
+    public int add(int parent, int move, Board board, int pathCost, long evaluation) {
+        if (board.getGeometry() != geometry) {
+            throw new IllegalArgumentException("Board size " + board.getRows() + "x" + board.getColumns()
+                    + " does not match the arena size " + geometry.getRows() + "x" + geometry.getColumns());
+        }
+        if (size == links.length) {
+            grow();
+        }
+        int index = size++;
+        links[index] = parent << 2 | (move & 3);
+        pathCosts[index] = pathCost;
+        evaluations[index] = evaluation;
+        board.pack(boards, index * cells);
+        return index;
+    }
+
+    /**
+     * Overwrites a board with the board of a node.
+     *
+     * @param index node index
+     * @param board the board to overwrite, of the arena's size
+     */
+    public void loadBoard(int index, Board board) {
+        board.unpack(boards, index * cells);
+    }
+
+    /**
+     * Returns the parent of a node.
+     *
+     * @param index node index
+     * @return parent index, or NO_PARENT for a root node
+     */
+    public int getParent(int index) {
+        return links[index] >> 2;
+    }
+
+    /**
+     * Returns the move from the parent board to the board of a node.
+     *
+     * @param index node index, not a root node
+     * @return direction ordinal of the move
+     */
+    public int getMove(int index) {
+        return links[index] & 3;
+    }
+
+    public int getPathCost(int index) {
+        return pathCosts[index];
+    }
+
+    public long getEvaluation(int index) {
+        return evaluations[index];
+    }
+
+    /**
+     * Returns the moves from the root to a node.
+     *
+     * @param index node index
+     * @return direction ordinals of the moves, in order
+     */
+    public byte[] getMoves(int index) {
+        int length = 0;
+        for (int node = index; getParent(node) != NO_PARENT; node = getParent(node)) {
+            length++;
+        }
+        byte[] moves = new byte[length];
+        for (int node = index; getParent(node) != NO_PARENT; node = getParent(node)) {
+            moves[--length] = (byte) getMove(node);
+        }
+        return moves;
+    }
+
+    /**
+     * Returns the number of nodes in the arena.
+     *
+     * @return number of nodes
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Doubles the number of nodes the arrays can hold.
+     *
+     * @throws OutOfMemoryError if the arena cannot grow any further, so searches end as out of memory
+     */
+    private void grow() {
+        if (links.length == maxNodes) {
+            throw new OutOfMemoryError("Node arena is full");
+        }
+        int capacity = (int) Math.min(links.length * 2L, maxNodes);
+        links = Arrays.copyOf(links, capacity);
+        pathCosts = Arrays.copyOf(pathCosts, capacity);
+        evaluations = Arrays.copyOf(evaluations, capacity);
+        boards = Arrays.copyOf(boards, capacity * cells);
+    }
+}
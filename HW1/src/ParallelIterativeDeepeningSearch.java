@@ -0,0 +1,372 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Iterative Deepening A* on several threads.
+ * <p>
+ * The first levels of the search tree are expanded breadth first until there are UNITS_PER_THREAD nodes per thread.
+ * Every iteration then runs a cost-bounded depth first search from each of these work units as a task of
+ * a fork-join pool, so threads that run out of work steal the units that are left.
+ * <p>
+ * The workers share a fixed-size transposition table holding the shortest path cost every state was reached with
+ * in the current iteration. A state reached again with a path that is not shorter is pruned, since the first visit
+ * searches everything below it with at least the same bound left. This prunes the paths that merge within a work
+ * unit and across units, which the single-threaded search explores again and again.
+ * The table is cleared before every iteration, so every goal found within a bound is still a shortest solution,
+ * and the first one found ends the search.
+ */
+public class ParallelIterativeDeepeningSearch {
+    private static final int STOP_CHECK_INTERVAL = 1024; // Nodes a worker expands between checks of the stop condition
+    private static final int UNITS_PER_THREAD = 16; // Work units per thread, enough to even out units of unequal size
+    private static final int MAX_SPLIT_DEPTH = 16; // Deepest level split into work units, for boards with few moves
+
+    private final int threads;
+    private final Heuristic heuristic;
+    private final BooleanSupplier stopCondition;
+    private volatile boolean stopped;
+    private final LongAdder expandedNodes = new LongAdder();
+    private final TranspositionTable transpositions = new TranspositionTable();
+    private final AtomicReference<byte[]> solution = new AtomicReference<>(); // Moves of the goal found by a worker
+    private final AtomicInteger nextBound = new AtomicInteger(); // Smallest cost that exceeded the bound in any unit
+    private Unit[] units;
+    private int bound; // Bound of the current iteration, published to the workers by the pool
+
+    /**
+     * Constructs a ParallelIterativeDeepeningSearch.
+     *
+     * @param threads number of worker threads
+     * @param heuristic heuristic of the search, should never overestimate
+     * @param stopCondition checked by the workers every few expanded nodes, the search stops once it returns true
+     * @throws IllegalArgumentException if threads is smaller than 1
+     */
+    public ParallelIterativeDeepeningSearch(int threads, Heuristic heuristic, BooleanSupplier stopCondition) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Number of threads must be positive: " + threads);
+        }
+        this.threads = threads;
+        this.heuristic = heuristic;
+        this.stopCondition = stopCondition;
+    }
+
+    /**
+     * Searches for a shortest solution from a given board.
+     *
+     * @param root the initial board
+     * @param rootEvaluation packed heuristic evaluation of the initial board (see Heuristic.evaluatePacked)
+     * @return the moves of a shortest solution (direction ordinals), or null if there is no solution
+     *         or the search was stopped
+     * @throws OutOfMemoryError if a worker ran out of memory
+     */
+    public byte[] search(Board root, long rootEvaluation) {
+        stopped = false;
+        solution.set(null);
+        byte[] moves = split(root, rootEvaluation);
+        if (moves != null) {
+            return moves;
+        }
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            bound = heuristic.valueOf(rootEvaluation);
+            while (bound != Integer.MAX_VALUE && units.length > 0) {
+                transpositions.clear();
+                nextBound.set(Integer.MAX_VALUE);
+                pool.invoke(new UnitTask(0, units.length));
+                if (stopped) {
+                    return null;
+                }
+                if (solution.get() != null) {
+                    return solution.get();
+                }
+                bound = nextBound.get();
+            }
+            return null;  // Unsolvable board
+        } finally {
+            pool.shutdownNow();
+            units = null;
+        }
+    }
+
+    /**
+     * Checks if the last search was stopped by the stop condition before it ended.
+     *
+     * @return true if the search was stopped
+     */
+    public boolean isStopped() {
+        return stopped;
+    }
+
+    /**
+     * Returns the number of nodes expanded by all workers.
+     * While the search runs, each worker adds its count every STOP_CHECK_INTERVAL expanded nodes.
+     *
+     * @return number of expanded nodes
+     */
+    public long getExpandedNodes() {
+        return expandedNodes.sum();
+    }
+
+    /**
+     * Expands the first levels of the search tree breadth first into the work units.
+     * The levels are checked for goal boards before they are expanded, so a goal found here is a shortest solution.
+     *
+     * @param root the initial board
+     * @param rootEvaluation packed heuristic evaluation of the initial board
+     * @return the moves of a goal board found on the expanded levels, or null if there is none
+     */
+    private byte[] split(Board root, long rootEvaluation) {
+        List<Unit> level = new ArrayList<>();
+        level.add(new Unit(new Board(root), new byte[0], rootEvaluation));
+        for (int depth = 0; depth < MAX_SPLIT_DEPTH && level.size() < threads * UNITS_PER_THREAD; depth++) {
+            List<Unit> nextLevel = new ArrayList<>();
+            for (Unit unit : level) {
+                if (unit.board.isInOrder()) {
+                    return unit.moves;
+                }
+                for (int move = 0; move < 4; move++) {
+                    if (!unit.board.canSlide(move) || move == Direction.opposite(unit.lastMove())) {
+                        continue;  // No tile to move, or moving the same tile again undoes the previous move
+                    }
+                    Board child = new Board(unit.board);
+                    child.slide(move);
+                    byte[] childMoves = Arrays.copyOf(unit.moves, unit.moves.length + 1);
+                    childMoves[unit.moves.length] = (byte) move;
+                    nextLevel.add(new Unit(child, childMoves,
+                            heuristic.evaluatePacked(unit.board, child, unit.evaluation)));
+                }
+            }
+            expandedNodes.add(level.size());
+            level = nextLevel;
+        }
+        units = level.toArray(new Unit[0]);
+        return null;
+    }
+
+    /** A node of the last split level, the root of one depth first search per iteration. */
+    private static class Unit {
+        private final Board board;
+        private final byte[] moves; // Moves from the initial board
+        private final long evaluation; // Packed heuristic evaluation of the board
+
+        Unit(Board board, byte[] moves, long evaluation) {
+            this.board = board;
+            this.moves = moves;
+            this.evaluation = evaluation;
+        }
+
+        /**
+         * Returns the move that led to the board.
+         *
+         * @return direction ordinal, or -1 for the initial board
+         */
+        int lastMove() {
+            return moves.length == 0 ? -1 : moves[moves.length - 1];
+        }
+    }
+
+    /** Searches a range of work units, splitting it in halves until a task searches a single unit. */
+    private class UnitTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+
+        UnitTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new UnitTask(from, middle), new UnitTask(middle, to));
+            } else if (solution.get() == null && !stopped) {
+                new Worker(units[from]).search();
+            }
+        }
+    }
+
+    /** The cost-bounded depth first search of a single work unit. */
+    private class Worker {
+        private final Unit unit;
+        private Board[] pathBoards = new Board[16]; // Boards along the path from the unit, overwritten in place
+        private byte[] pathMoves = new byte[16]; // Moves along the path from the unit
+        private long unreportedNodes; // Expanded nodes not yet added to expandedNodes
+        private boolean found;
+
+        Worker(Unit unit) {
+            this.unit = unit;
+            pathBoards[0] = new Board(unit.board);
+        }
+
+        /** Searches the unit and takes part in the next bound, or publishes the goal it found. */
+        void search() {
+            try {
+                nextBound.accumulateAndGet(depthFirstSearch(0, unit.evaluation), Math::min);
+            } catch (WorkerStoppedException e) {
+                // The search was stopped, or another worker found a goal
+            } finally {
+                expandedNodes.add(unreportedNodes);
+            }
+        }
+
+        /**
+         * Performs the cost-bounded depth first search below the unit.
+         * The board at the given depth is pathBoards[depth], and the moves that led to it from the unit are
+         * pathMoves[0..depth). Moves that undo the previous move are skipped.
+         *
+         * @param depth number of moves from the unit
+         * @param evaluation packed heuristic evaluation of the board at the given depth
+         * @return Smallest estimated cost that exceeded the bound (or Integer.MAX_VALUE if there is none)
+         */
+        private int depthFirstSearch(int depth, long evaluation) {
+            int pathCost = unit.moves.length + depth;
+            int estimatedCost = pathCost + heuristic.valueOf(evaluation);
+            if (estimatedCost > bound) {
+                return estimatedCost;
+            }
+            Board board = pathBoards[depth];
+            if (board.isInOrder()) {
+                byte[] moves = Arrays.copyOf(unit.moves, pathCost);
+                System.arraycopy(pathMoves, 0, moves, unit.moves.length, depth);
+                solution.compareAndSet(null, moves);
+                found = true;
+                return estimatedCost;
+            }
+            if (transpositions.isReached(board.getFingerprint(), pathCost)) {
+                return Integer.MAX_VALUE;  // Searched from a path that is not longer, which gives the same next bound
+            }
+            if (++unreportedNodes == STOP_CHECK_INTERVAL) {
+                checkStop();
+            }
+            if (depth + 1 == pathBoards.length) {  // First time the path is this long
+                pathBoards = Arrays.copyOf(pathBoards, pathBoards.length * 2);
+                pathMoves = Arrays.copyOf(pathMoves, pathBoards.length);
+            }
+            if (pathBoards[depth + 1] == null) {
+                pathBoards[depth + 1] = new Board(board);
+            }
+            Board child = pathBoards[depth + 1];
+            int previousMove = depth == 0 ? unit.lastMove() : pathMoves[depth - 1];
+            int nextBound = Integer.MAX_VALUE;
+            for (int move = 0; move < 4; move++) {
+                if (!board.canSlide(move) || (previousMove >= 0 && move == Direction.opposite(previousMove))) {
+                    continue;  // No tile to move, or moving the same tile again undoes the previous move
+                }
+                child.copyFrom(board);
+                child.slide(move);
+                pathMoves[depth] = (byte) move;
+                nextBound = Math.min(nextBound,
+                        depthFirstSearch(depth + 1, heuristic.evaluatePacked(board, child, evaluation)));
+                if (found) {
+                    return nextBound;
+                }
+            }
+            return nextBound;
+        }
+
+        /**
+         * Reports the expanded nodes, and stops the worker if the search was stopped or a goal was found.
+         *
+         * @throws WorkerStoppedException if the worker should stop
+         */
+        private void checkStop() {
+            expandedNodes.add(unreportedNodes);
+            unreportedNodes = 0;
+            if (!stopped && solution.get() == null && stopCondition.getAsBoolean()) {
+                stopped = true;
+            }
+            if (stopped || solution.get() != null) {
+                throw new WorkerStoppedException();
+            }
+        }
+    }
+
+    /**
+     * A fixed-size, lock-free table of the shortest path cost every state was reached with.
+     * A fingerprint selects a bucket of WAYS slots, and an entry is a single long packing the fingerprint bits that
+     * the bucket does not tell with the path cost plus 1, so 0 marks a free slot and an entry is written by a single
+     * compare-and-set. Together the bucket and the entry tell the whole fingerprint, so entries never collide.
+     * When a bucket is full, the entry with the longest path cost is replaced, since it prunes the smallest subtree.
+     * Writes that lose a race are dropped, which only means a later path is not pruned.
+     * <p>
+     * The table stores the path cost rather than a (fingerprint, bound) pair. It is cleared before every iteration,
+     * so all entries belong to the same bound, and the heuristic value of a state does not depend on its path.
+     * A state reached again with a path that is not shorter has no more of the bound left to search with, so its
+     * subtree was already searched as deep and gives the same next bound. The cost also takes fewer bits than a
+     * bound of the estimated cost, which leaves the rest of the entry to the fingerprint.
+     */
+    private static class TranspositionTable {
+        private static final int BUCKET_BITS = 19; // Buckets of the table, which is 2^21 longs (16 MB)
+        private static final int WAYS = 4; // Slots per bucket
+        private static final int MAX_COST = (1 << BUCKET_BITS) - 2; // Longest path cost the entries can hold
+        private static final long COST_MASK = (1L << BUCKET_BITS) - 1;
+
+        private final AtomicLongArray entries = new AtomicLongArray(WAYS << BUCKET_BITS);
+
+        /**
+         * Records that a state was reached with a path cost, unless it was reached with a path that is not longer.
+         *
+         * @param fingerprint fingerprint of the state
+         * @param pathCost cost of the path to the state
+         * @return true if the state was already reached with a path that is not longer
+         */
+        boolean isReached(long fingerprint, int pathCost) {
+            if (pathCost > MAX_COST) {
+                return false;
+            }
+            long mixed = fingerprint * 0x9E3779B97F4A7C15L;  // A bijection, so the bucket and tag tell the fingerprint
+            int bucket = (int) (mixed >>> (Long.SIZE - BUCKET_BITS)) * WAYS;
+            long tag = mixed << BUCKET_BITS;
+            long entry = tag | (pathCost + 1);
+            int victim = bucket;
+            long victimEntry = 0;
+            for (int slot = bucket; slot < bucket + WAYS; slot++) {
+                long current = entries.get(slot);
+                if (current == 0) {
+                    if (entries.compareAndSet(slot, 0, entry)) {
+                        return false;
+                    }
+                    current = entries.get(slot);  // Another worker took the slot, maybe for the same state
+                }
+                if ((current & ~COST_MASK) == tag) {
+                    if ((current & COST_MASK) <= pathCost + 1) {
+                        return true;
+                    }
+                    entries.compareAndSet(slot, current, entry);
+                    return false;
+                }
+                if ((current & COST_MASK) > (victimEntry & COST_MASK)) {
+                    victim = slot;
+                    victimEntry = current;
+                }
+            }
+            entries.compareAndSet(victim, victimEntry, entry);
+            return false;
+        }
+
+        /** Removes all entries, before a new iteration. The pool publishes the writes to the workers. */
+        void clear() {
+            for (int slot = 0; slot < entries.length(); slot++) {
+                entries.setPlain(slot, 0);
+            }
+        }
+    }
+
+    /** Thrown inside a worker to unwind its search when the search was stopped or a goal was found. */
+    private static class WorkerStoppedException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        WorkerStoppedException() {
+            super(null, null, false, false);  // No stack trace, the exception never leaves the worker
+        }
+    }
+}
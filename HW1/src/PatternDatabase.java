@@ -0,0 +1,614 @@
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A disjoint additive pattern database heuristic.
+ * The tiles are split into groups. For every placement of a group's tiles, a table stores the number of moves
+ * of those tiles needed to bring them to their goal positions, while the other tiles are treated as indistinguishable.
+ * Every move slides a tile of a single group, so the values of the groups can be added.
+ * <p>
+ * An entry stores the number of moves beyond the Manhattan distance of the group's tiles, capped at 15,
+ * so two entries are packed into a byte.
+ * Tables are built once for a board size, written to a file and loaded with a memory mapping.
+ * <p>
+ * Every thread keeps the tile cells of the last board it evaluated (see TileCells). The parent of an incremental
+ * evaluation is almost always that board or one move away from it, so the change of the moved tile's group takes
+ * a single table lookup instead of a scan of the board.
+ */
+public class PatternDatabase implements Heuristic {
+    private static final int MAGIC = 0x50444231; // "PDB1"
+    private static final int MAX_CELLS = 64; // Cells are tracked in a long bit mask while ranking
+    private static final long MAX_BUILD_STATES = 1L << 26; // Largest default table, including the empty tile position
+    private static final int MAX_EXTRA = 15; // Largest value that fits in a nibble
+
+    private final Geometry geometry;
+    private final int rows, columns;
+    private final int[][] groups; // Tile values of every group
+    private final int[] groupOf; // Group index of every tile value, -1 if the tile is in no group
+    private final int[] indexInGroup; // Index of every tile value within its group
+    private final ByteBuffer[] tables; // Nibble packed extra moves of every group
+    private final ThreadLocal<TileCells> tileCells = ThreadLocal.withInitial(TileCells::new);
+
+    /**
+     * Constructs a PatternDatabase from built or loaded tables.
+     *
+     * @param rows number of rows of the boards
+     * @param columns number of columns of the boards
+     * @param groups tile values of every group
+     * @param tables table of every group
+     */
+    private PatternDatabase(int rows, int columns, int[][] groups, ByteBuffer[] tables) {
+        this.geometry = Geometry.of(rows, columns);
+        this.rows = rows;
+        this.columns = columns;
+        this.groups = groups;
+        this.tables = tables;
+        groupOf = new int[rows * columns];
+        indexInGroup = new int[rows * columns];
+        Arrays.fill(groupOf, -1);
+        for (int g = 0; g < groups.length; g++) {
+            for (int i = 0; i < groups[g].length; i++) {
+                groupOf[groups[g][i]] = g;
+                indexInGroup[groups[g][i]] = i;
+            }
+        }
+    }
+
+    /**
+     * Builds a pattern database for a board size, using the default groups.
+     *
+     * @param rows number of rows
+     * @param columns number of columns
+     * @return the pattern database
+     * @throws IllegalArgumentException if the board has more than 64 cells
+     */
+    public static PatternDatabase build(int rows, int columns) {
+        return build(rows, columns, defaultGroups(rows, columns));
+    }
+
+    /**
+     * Builds a pattern database for a board size.
+     *
+     * @param rows number of rows
+     * @param columns number of columns
+     * @param groups disjoint groups of tile values, tiles in no group only contribute their Manhattan distance
+     * @return the pattern database
+     * @throws IllegalArgumentException if the board has more than 64 cells or the groups are invalid
+     */
+    public static PatternDatabase build(int rows, int columns, int[][] groups) {
+        validate(rows, columns, groups);
+        ByteBuffer[] tables = new ByteBuffer[groups.length];
+        for (int g = 0; g < groups.length; g++) {
+            tables[g] = ByteBuffer.wrap(buildTable(Geometry.of(rows, columns), groups[g]));
+        }
+        return new PatternDatabase(rows, columns, copyGroups(groups), tables);
+    }
+
+    /**
+     * Splits the tiles of a board size into groups, in reading order.
+     * Each group is as large as possible while its table (including the empty tile position) stays below 2^26 entries,
+     * for example 6-6-3 for 4x4 boards.
+     *
+     * @param rows number of rows
+     * @param columns number of columns
+     * @return tile values of every group
+     */
+    public static int[][] defaultGroups(int rows, int columns) {
+        int cells = rows * columns;
+        int size = 1;
+        while (size < cells - 1 && permutations(cells, size + 2) <= MAX_BUILD_STATES) {
+            size++;
+        }
+        int[][] groups = new int[(cells - 1 + size - 1) / size][];
+        for (int g = 0; g < groups.length; g++) {
+            groups[g] = new int[Math.min(size, cells - 1 - g * size)];
+            for (int i = 0; i < groups[g].length; i++) {
+                groups[g][i] = g * size + i + 1;
+            }
+        }
+        return groups;
+    }
+
+    /**
+     * Loads a pattern database from a file, or builds and writes it if the file does not exist.
+     *
+     * @param file the file
+     * @param rows number of rows
+     * @param columns number of columns
+     * @return the pattern database
+     * @throws IOException if the file cannot be read or written
+     * @throws IllegalArgumentException if the file holds a pattern database for a different board size
+     */
+    public static PatternDatabase loadOrBuild(Path file, int rows, int columns) throws IOException {
+        if (!Files.exists(file)) {
+            build(rows, columns).write(file);
+        }
+        PatternDatabase patternDatabase = load(file);
+        if (patternDatabase.rows != rows || patternDatabase.columns != columns) {
+            throw new IllegalArgumentException(file + " holds a pattern database for "
+                    + patternDatabase.rows + "x" + patternDatabase.columns + " boards");
+        }
+        return patternDatabase;
+    }
+
+    /**
+     * Loads a pattern database from a file written by write.
+     * The tables are memory mapped, not copied to the heap.
+     *
+     * @param file the file
+     * @return the pattern database
+     * @throws IOException if the file cannot be read or is not a pattern database file
+     */
+    public static PatternDatabase load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            try {
+                if (buffer.getInt() != MAGIC) {
+                    throw new IOException(file + " is not a pattern database file");
+                }
+                int rows = buffer.getInt();
+                int columns = buffer.getInt();
+                int[][] groups = new int[buffer.getInt()][];
+                for (int g = 0; g < groups.length; g++) {
+                    groups[g] = new int[buffer.getInt()];
+                    for (int i = 0; i < groups[g].length; i++) {
+                        groups[g][i] = buffer.getInt();
+                    }
+                }
+                validate(rows, columns, groups);
+                ByteBuffer[] tables = new ByteBuffer[groups.length];
+                int offset = buffer.position();
+                for (int g = 0; g < groups.length; g++) {
+                    int length = tableLength(rows * columns, groups[g].length);
+                    tables[g] = buffer.slice(offset, length);
+                    offset += length;
+                }
+                return new PatternDatabase(rows, columns, groups, tables);
+            } catch (IllegalArgumentException | IndexOutOfBoundsException | BufferUnderflowException
+                     | NegativeArraySizeException e) {
+                throw new IOException(file + " is not a valid pattern database file", e);
+            }
+        }
+    }
+
+    /**
+     * Writes the pattern database to a file, replacing the file if it exists.
+     *
+     * @param file the file
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path file) throws IOException {
+        int headerLength = 4 * Integer.BYTES;
+        for (int[] group : groups) {
+            headerLength += (group.length + 1) * Integer.BYTES;
+        }
+        ByteBuffer header = ByteBuffer.allocate(headerLength);
+        header.putInt(MAGIC).putInt(rows).putInt(columns).putInt(groups.length);
+        for (int[] group : groups) {
+            header.putInt(group.length);
+            for (int tile : group) {
+                header.putInt(tile);
+            }
+        }
+        header.flip();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(channel, header);
+            for (ByteBuffer table : tables) {
+                writeFully(channel, table.duplicate().clear());
+            }
+        }
+    }
+
+    @Override
+    public int evaluate(Board board) {
+        checkGeometry(board);
+        TileCells tiles = tileCells.get();
+        tiles.load(board);
+        int distance = 0;
+        for (int value = 1; value < tiles.cells.length; value++) {
+            distance += distanceFromGoal(value, tiles.cells[value]);
+        }
+        for (int g = 0; g < groups.length; g++) {
+            distance += tiles.extras[g];
+        }
+        return distance;
+    }
+
+    @Override
+    public int evaluate(Board parent, Board child, int parentValue) {
+        checkGeometry(child);
+        // The moved tile now stands where the empty tile used to be
+        int to = parent.getEmptyTileRow() * columns + parent.getEmptyTileColumn();
+        int from = child.getEmptyTileRow() * columns + child.getEmptyTileColumn();
+        int value = child.getValue(parent.getEmptyTileRow(), parent.getEmptyTileColumn());
+        int change = distanceFromGoal(value, to) - distanceFromGoal(value, from);
+
+        // Only the table of the moved tile's group is affected
+        int g = groupOf[value];
+        if (g >= 0) {
+            TileCells tiles = tileCells.get();
+            tiles.moveTo(parent);
+            change -= tiles.extras[g];
+            tiles.moveTo(child);  // One move away, so a single table lookup
+            change += tiles.extras[g];
+        }
+        return parentValue + change;
+    }
+
+    /**
+     * Returns the number of rows of the boards this pattern database is for.
+     *
+     * @return number of rows
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Returns the number of columns of the boards this pattern database is for.
+     *
+     * @return number of columns
+     */
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * Looks up the extra moves of a group's tiles.
+     *
+     * @param group group index
+     * @param positions cells of the group's tiles, in group order
+     * @return moves needed beyond the Manhattan distance of the tiles (at most 15)
+     */
+    private int extraMoves(int group, int[] positions) {
+        long rank = rank(positions, groups[group].length, rows * columns);
+        int packed = tables[group].get((int) (rank >>> 1));
+        return (rank & 1) == 0 ? packed & 0xF : (packed >>> 4) & 0xF;
+    }
+
+    /**
+     * Calculate the Manhattan distance of a tile from its goal position.
+     *
+     * @param value tile value
+     * @param cell current cell of the tile
+     * @return distance from goal position, 0 for the empty tile
+     */
+    private int distanceFromGoal(int value, int cell) {
+        if (value == 0) { // Empty tile
+            return 0;
+        }
+        return Helper.absolute(cell / columns - geometry.goalRow(value))
+                + Helper.absolute(cell % columns - geometry.goalColumn(value));
+    }
+
+    /**
+     * Checks that a board has the geometry of this pattern database.
+     *
+     * @param board the board
+     * @throws IllegalArgumentException if the board has a different size
+     */
+    private void checkGeometry(Board board) {
+        if (board.getGeometry() != geometry) {
+            throw new IllegalArgumentException("Pattern database is for " + rows + "x" + columns + " boards");
+        }
+    }
+
+    /**
+     * The cells of the tiles on the last board a thread evaluated, and the extra moves of every group on it.
+     * A board one move away is reached by moving a single tile, and any other board is scanned.
+     */
+    private class TileCells {
+        private final int[] cells = new int[rows * columns]; // Cell of every tile value
+        private final int[][] groupPositions = new int[groups.length][]; // Cells of every group's tiles, in group order
+        private final int[] extras = new int[groups.length]; // Extra moves of every group
+        private long fingerprint;
+        private boolean loaded;
+
+        TileCells() {
+            for (int g = 0; g < groups.length; g++) {
+                groupPositions[g] = new int[groups[g].length];
+            }
+        }
+
+        /**
+         * Makes these the tile cells of a board, by moving a single tile if the board is one move away.
+         *
+         * @param board the board
+         */
+        void moveTo(Board board) {
+            long boardFingerprint = board.getFingerprint();
+            if (loaded && boardFingerprint == fingerprint) {
+                return;
+            }
+            int empty = cells[0];
+            int boardEmpty = board.getEmptyTileRow() * columns + board.getEmptyTileColumn();
+            if (loaded && Helper.absolute(empty / columns - boardEmpty / columns)
+                    + Helper.absolute(empty % columns - boardEmpty % columns) == 1) {
+                int value = board.getValue(empty / columns, empty % columns);  // Slid from boardEmpty into empty
+                long movedFingerprint = fingerprint ^ geometry.zobristKey(empty, 0) ^ geometry.zobristKey(empty, value)
+                        ^ geometry.zobristKey(boardEmpty, value) ^ geometry.zobristKey(boardEmpty, 0);
+                if (cells[value] == boardEmpty && movedFingerprint == boardFingerprint) {
+                    cells[value] = empty;
+                    cells[0] = boardEmpty;
+                    int g = groupOf[value];
+                    if (g >= 0) {
+                        groupPositions[g][indexInGroup[value]] = empty;
+                        extras[g] = extraMoves(g, groupPositions[g]);
+                    }
+                    fingerprint = boardFingerprint;
+                    return;
+                }
+            }
+            load(board);
+        }
+
+        /**
+         * Makes these the tile cells of a board by scanning it.
+         *
+         * @param board the board
+         */
+        void load(Board board) {
+            for (int i = 0; i < rows; i++) {
+                for (int j = 0; j < columns; j++) {
+                    int value = board.getValue(i, j);
+                    cells[value] = i * columns + j;
+                    if (value != 0 && groupOf[value] >= 0) {
+                        groupPositions[groupOf[value]][indexInGroup[value]] = i * columns + j;
+                    }
+                }
+            }
+            for (int g = 0; g < groups.length; g++) {
+                extras[g] = extraMoves(g, groupPositions[g]);
+            }
+            fingerprint = board.getFingerprint();
+            loaded = true;
+        }
+    }
+
+    /**
+     * Builds the table of a single group with a breadth first search backwards from the goal.
+     * The search states are the cells of the group's tiles and of the empty tile.
+     * Moving one of the group's tiles costs 1 and moving any other tile costs 0.
+     *
+     * @param geometry board geometry
+     * @param group tile values of the group
+     * @return nibble packed table of extra moves, indexed by the rank of the group's tile cells
+     */
+    private static byte[] buildTable(Geometry geometry, int[] group) {
+        int cells = geometry.getCells();
+        int columns = geometry.getColumns();
+        int size = group.length;
+        long patternStates = permutations(cells, size);
+        int emptyPositions = cells - size;
+        byte[] distances = new byte[Math.toIntExact(patternStates * emptyPositions)];
+        Arrays.fill(distances, (byte) -1); // Unsigned 255 marks an unseen state
+
+        // Start from the goal board
+        int[] positions = new int[size + 1]; // Group tile cells, followed by the empty tile cell
+        for (int i = 0; i < size; i++) {
+            positions[i] = group[i] - 1;
+        }
+        positions[size] = cells - 1;
+        int[] stack = new int[1024]; // States at the current depth that still need to be expanded
+        int stackSize = 0;
+        int start = (int) rank(positions, size + 1, cells);
+        distances[start] = 0;
+        stack[stackSize++] = start;
+
+        int depth = 0;
+        while (stackSize > 0) {
+            while (stackSize > 0) {
+                unrank(stack[--stackSize], size + 1, cells, positions);
+                int empty = positions[size];
+                for (int direction = 0; direction < 4; direction++) {
+                    int neighbor = geometry.neighbor(empty, direction);
+                    if (neighbor < 0) {
+                        continue;
+                    }
+                    int tile = indexOf(positions, size, neighbor);
+                    positions[size] = neighbor;
+                    if (tile < 0) { // Another tile moves into the empty cell, free of cost
+                        int next = (int) rank(positions, size + 1, cells);
+                        if ((distances[next] & 0xFF) > depth) {
+                            distances[next] = (byte) depth;
+                            if (stackSize == stack.length) {
+                                stack = Arrays.copyOf(stack, stack.length * 2);
+                            }
+                            stack[stackSize++] = next;
+                        }
+                    } else { // A group tile moves into the empty cell
+                        positions[tile] = empty;
+                        int next = (int) rank(positions, size + 1, cells);
+                        if ((distances[next] & 0xFF) > depth + 1) {
+                            distances[next] = (byte) (depth + 1);
+                        }
+                        positions[tile] = neighbor;
+                    }
+                    positions[size] = empty;
+                }
+            }
+
+            // Collect the states of the next depth
+            depth++;
+            if (depth == 255) {
+                throw new IllegalStateException("Pattern distances do not fit in a byte");
+            }
+            for (int i = 0; i < distances.length; i++) {
+                if ((distances[i] & 0xFF) == depth) {
+                    if (stackSize == stack.length) {
+                        stack = Arrays.copyOf(stack, stack.length * 2);
+                    }
+                    stack[stackSize++] = i;
+                }
+            }
+        }
+
+        // Keep the best empty tile position of every placement, minus the Manhattan distance
+        byte[] table = new byte[tableLength(cells, size)];
+        for (long rank = 0; rank < patternStates; rank++) {
+            int distance = 255;
+            for (int e = 0; e < emptyPositions; e++) {
+                distance = Math.min(distance, distances[(int) (rank * emptyPositions + e)] & 0xFF);
+            }
+            int extra = 0; // Unreachable placements (unsolvable boards) get no extra moves
+            if (distance != 255) {
+                unrank(rank, size, cells, positions);
+                for (int i = 0; i < size; i++) {
+                    distance -= Helper.absolute(positions[i] / columns - geometry.goalRow(group[i]))
+                            + Helper.absolute(positions[i] % columns - geometry.goalColumn(group[i]));
+                }
+                extra = Math.min(distance, MAX_EXTRA);
+            }
+            table[(int) (rank >>> 1)] |= (byte) (extra << ((rank & 1) * 4));
+        }
+        return table;
+    }
+
+    /**
+     * Ranks distinct cells as a partial permutation of all cells.
+     *
+     * @param positions the cells
+     * @param count number of cells to rank
+     * @param cells number of cells on the board
+     * @return rank between 0 and permutations(cells, count) - 1
+     */
+    private static long rank(int[] positions, int count, int cells) {
+        long rank = 0;
+        long used = 0;
+        for (int i = 0; i < count; i++) {
+            int position = positions[i];
+            rank = rank * (cells - i) + position - Long.bitCount(used & ((1L << position) - 1));
+            used |= 1L << position;
+        }
+        return rank;
+    }
+
+    /**
+     * Reverses rank.
+     *
+     * @param rank the rank
+     * @param count number of cells
+     * @param cells number of cells on the board
+     * @param positions array the cells are written to
+     */
+    private static void unrank(long rank, int count, int cells, int[] positions) {
+        for (int i = count - 1; i >= 0; i--) {
+            positions[i] = (int) (rank % (cells - i));
+            rank /= cells - i;
+        }
+        long used = 0;
+        for (int i = 0; i < count; i++) {
+            long free = ~used;
+            for (int skip = positions[i]; skip > 0; skip--) {
+                free &= free - 1; // Drop the lowest free cell
+            }
+            positions[i] = Long.numberOfTrailingZeros(free);
+            used |= 1L << positions[i];
+        }
+    }
+
+    /**
+     * Finds a value in an array prefix.
+     *
+     * @param values the array
+     * @param count length of the prefix
+     * @param value the value to find
+     * @return index of the value, -1 if not found
+     */
+    private static int indexOf(int[] values, int count, int value) {
+        for (int i = 0; i < count; i++) {
+            if (values[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Calculate the number of ordered selections of count cells out of all cells.
+     *
+     * @param cells number of cells
+     * @param count number of selected cells
+     * @return cells! / (cells - count)!, or some value above Integer.MAX_VALUE if it is larger
+     */
+    private static long permutations(int cells, int count) {
+        long result = 1;
+        for (int i = 0; i < count && result <= Integer.MAX_VALUE; i++) {
+            result *= cells - i;
+        }
+        return result;
+    }
+
+    /**
+     * Calculate the length in bytes of a group's table.
+     *
+     * @param cells number of cells
+     * @param size number of tiles in the group
+     * @return table length
+     */
+    private static int tableLength(int cells, int size) {
+        return Math.toIntExact((permutations(cells, size) + 1) / 2);
+    }
+
+    /**
+     * Checks that groups are valid for a board size.
+     *
+     * @param rows number of rows
+     * @param columns number of columns
+     * @param groups tile values of every group
+     * @throws IllegalArgumentException if the board is too large, or a tile is out of range or in two groups
+     */
+    private static void validate(int rows, int columns, int[][] groups) {
+        int cells = rows * columns;
+        if (rows < 1 || columns < 1 || cells > MAX_CELLS) {
+            throw new IllegalArgumentException("Pattern databases support boards of up to " + MAX_CELLS + " cells");
+        }
+        boolean[] grouped = new boolean[cells];
+        for (int[] group : groups) {
+            if (group.length == 0 || group.length >= cells
+                    || permutations(cells, group.length + 1) > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Invalid group size: " + group.length);
+            }
+            for (int tile : group) {
+                if (tile < 1 || tile >= cells || grouped[tile]) {
+                    throw new IllegalArgumentException("Invalid or repeated tile: " + tile);
+                }
+                grouped[tile] = true;
+            }
+        }
+    }
+
+    /**
+     * Makes a deep copy of groups.
+     *
+     * @param groups tile values of every group
+     * @return the copy
+     */
+    private static int[][] copyGroups(int[][] groups) {
+        int[][] copy = new int[groups.length][];
+        for (int g = 0; g < groups.length; g++) {
+            copy[g] = groups[g].clone();
+        }
+        return copy;
+    }
+
+    /**
+     * Writes all remaining bytes of a buffer to a channel.
+     *
+     * @param channel the channel
+     * @param buffer the buffer
+     * @throws IOException if writing fails
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
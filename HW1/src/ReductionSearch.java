@@ -0,0 +1,440 @@
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+/**
+ * A fast search for large boards, which solves the board one row or column at a time and does not look for
+ * a short solution.
+ * <p>
+ * While the unsolved part of the board is larger than 3x3, its top row (if it has at least as many rows as columns)
+ * or its left column is solved and locked, which leaves a smaller unsolved rectangle in the bottom right corner.
+ * Every tile of the line except the last two is moved to its goal cell by a breadth first search over the cells
+ * of the empty tile and that tile only, the other tiles are treated as indistinguishable.
+ * The last two tiles cannot be placed one after the other, so both are placed together by a breadth first search
+ * over the cells of the empty tile and the two tiles, within a small window at the end of the line.
+ * The remaining part of at most 3x3 (or a single row or column) is renumbered as a board of its own and solved
+ * with the Iterative Deepening A* search.
+ * Every local search visits at most cells^3 abstract states, so memory stays small for any board size.
+ */
+public class ReductionSearch {
+    private static final int MAX_REMAINDER = 3; // Largest number of rows and columns solved by IDA*
+    private static final int STOP_CHECK_INTERVAL = 1024; // Expanded states between checks of the stop condition
+
+    private final BooleanSupplier stopCondition;
+    private long expandedNodes;
+    private boolean stopped;
+
+    // State of the current search
+    private Board board;
+    private Geometry geometry;
+    private boolean[] free; // Cells the empty tile may move through, false for solved and temporarily locked cells
+    private byte[] moves;
+    private int moveCount;
+
+    /**
+     * Constructs a ReductionSearch.
+     *
+     * @param stopCondition checked every few expanded states, the search stops once it returns true
+     */
+    public ReductionSearch(BooleanSupplier stopCondition) {
+        this.stopCondition = stopCondition;
+    }
+
+    /**
+     * Searches for a solution from a given board.
+     *
+     * @param root the initial board, which should be solvable
+     * @return the moves of a solution (direction ordinals), or null if the search was stopped
+     * @throws IllegalStateException if the board could not be solved, which means it is unsolvable
+     */
+    public byte[] search(Board root) {
+        board = new Board(root);
+        geometry = root.getGeometry();
+        free = new boolean[geometry.getCells()];
+        Arrays.fill(free, true);
+        moves = new byte[64];
+        moveCount = 0;
+        stopped = false;
+        try {
+            int top = 0; // The unsolved rectangle is [top, rows) x [left, columns)
+            int left = 0;
+            int rows = geometry.getRows();
+            int columns = geometry.getColumns();
+            while (rows - top > 1 && columns - left > 1
+                    && (rows - top > MAX_REMAINDER || columns - left > MAX_REMAINDER)) {
+                boolean solved = rows - top >= columns - left ? solveRow(top, left) : solveColumn(top, left);
+                if (!solved) {
+                    return null;
+                }
+                if (rows - top >= columns - left) {
+                    top++;
+                } else {
+                    left++;
+                }
+            }
+            if (!solveRemainder(top, left)) {
+                return null;
+            }
+            if (!board.isInOrder()) {
+                throw new IllegalStateException("The board could not be solved");
+            }
+            return Arrays.copyOf(moves, moveCount);
+        } finally {
+            board = null;
+            free = null;
+            moves = null;
+        }
+    }
+
+    /**
+     * Returns the number of abstract states expanded by the local searches and nodes expanded by IDA*.
+     *
+     * @return number of expanded nodes
+     */
+    public long getExpandedNodes() {
+        return expandedNodes;
+    }
+
+    /**
+     * Checks if the last search was stopped by the stop condition before it ended.
+     *
+     * @return true if the search was stopped
+     */
+    public boolean isStopped() {
+        return stopped;
+    }
+
+    /**
+     * Solves and locks the top row of the unsolved rectangle.
+     *
+     * @param top first unsolved row
+     * @param left first unsolved column
+     * @return false if the search was stopped
+     */
+    private boolean solveRow(int top, int left) {
+        int columns = geometry.getColumns();
+        for (int column = left; column < columns - 2; column++) {
+            if (!placeTile(top * columns + column)) {
+                return false;
+            }
+        }
+        boolean[] window = window(top, Math.min(top + 3, geometry.getRows()), Math.max(left, columns - 3), columns);
+        return placeLastTwo(top * columns + columns - 2, top * columns + columns - 1, window);
+    }
+
+    /**
+     * Solves and locks the left column of the unsolved rectangle.
+     *
+     * @param top first unsolved row
+     * @param left first unsolved column
+     * @return false if the search was stopped
+     */
+    private boolean solveColumn(int top, int left) {
+        int rows = geometry.getRows();
+        int columns = geometry.getColumns();
+        for (int row = top; row < rows - 2; row++) {
+            if (!placeTile(row * columns + left)) {
+                return false;
+            }
+        }
+        boolean[] window = window(Math.max(top, rows - 3), rows, left, Math.min(left + 3, columns));
+        return placeLastTwo((rows - 2) * columns + left, (rows - 1) * columns + left, window);
+    }
+
+    /**
+     * Moves the tile that belongs in a cell to it, and locks the cell.
+     *
+     * @param cell the goal cell
+     * @return false if the search was stopped
+     */
+    private boolean placeTile(int cell) {
+        boolean[] goal = new boolean[free.length];
+        goal[cell] = true;
+        if (!moveTiles(new int[] {cell + 1}, null, new boolean[][] {goal}, free)) {
+            return false;
+        }
+        free[cell] = false;
+        return true;
+    }
+
+    /**
+     * Moves the tiles that belong in the last two cells of a line to them together, and locks the cells.
+     * Both tiles and the empty tile are first brought into a window around the two cells, so the joint search only
+     * covers the window. If that fails, the joint search covers all unsolved cells.
+     *
+     * @param first the goal cell of the first tile
+     * @param second the goal cell of the second tile
+     * @param window unsolved cells around the two cells
+     * @return false if the search was stopped
+     */
+    private boolean placeLastTwo(int first, int second, boolean[] window) {
+        int[] values = {first + 1, second + 1};
+        boolean[] firstGoal = new boolean[free.length];
+        boolean[] secondGoal = new boolean[free.length];
+        firstGoal[first] = true;
+        secondGoal[second] = true;
+        boolean[][] goals = {firstGoal, secondGoal};
+
+        boolean placed = moveTiles(new int[] {values[1]}, null, new boolean[][] {window}, free);
+        if (placed) {
+            int secondCell = cellOf(values[1]);
+            free[secondCell] = false;  // Keep the second tile in the window while the first one is moved
+            placed = moveTiles(new int[] {values[0]}, null, new boolean[][] {window}, free);
+            int firstCell = cellOf(values[0]);
+            free[firstCell] = false;
+            placed = placed && moveTiles(new int[0], window, new boolean[0][], free);
+            free[firstCell] = true;
+            free[secondCell] = true;
+        }
+        placed = placed && moveTiles(values, null, goals, window);
+        if (!placed && !stopped) {
+            placed = moveTiles(values, null, goals, free);
+        }
+        if (!placed) {
+            if (!stopped) {
+                throw new IllegalStateException("The board could not be solved");
+            }
+            return false;
+        }
+        free[first] = false;
+        free[second] = false;
+        return true;
+    }
+
+    /**
+     * Returns the unsolved cells of a rectangle.
+     *
+     * @param fromRow first row
+     * @param toRow row after the last row
+     * @param fromColumn first column
+     * @param toColumn column after the last column
+     * @return true for every unsolved cell in the rectangle
+     */
+    private boolean[] window(int fromRow, int toRow, int fromColumn, int toColumn) {
+        boolean[] window = new boolean[free.length];
+        for (int row = fromRow; row < toRow; row++) {
+            for (int column = fromColumn; column < toColumn; column++) {
+                int cell = row * geometry.getColumns() + column;
+                window[cell] = free[cell];
+            }
+        }
+        return window;
+    }
+
+    /**
+     * Moves the empty tile within allowed cells until the empty tile and some tiles reach goal cells,
+     * using the fewest moves. The search state is the cells of the empty tile and the tracked tiles only.
+     * The moves are performed on the board.
+     *
+     * @param values the tracked tiles, at most two
+     * @param blankGoal cells the empty tile should reach, or null for any cell
+     * @param goals cells every tracked tile should reach
+     * @param allowed cells the empty tile may move through
+     * @return false if the goal cannot be reached within the allowed cells, or the search was stopped
+     */
+    private boolean moveTiles(int[] values, boolean[] blankGoal, boolean[][] goals, boolean[] allowed) {
+        int cells = free.length;
+        int[] positions = new int[values.length];
+        int blank = cellOf(0);
+        if (!allowed[blank]) {
+            return false;
+        }
+        for (int i = 0; i < values.length; i++) {
+            positions[i] = cellOf(values[i]);
+            if (!allowed[positions[i]]) {
+                return false;
+            }
+        }
+        int start = encode(blank, positions, cells);
+        FingerprintTable parents = new FingerprintTable(); // Parent of every reached state
+        parents.put(start, -1);
+        int[] queue = new int[64];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = start;
+        while (head < tail) {
+            int state = queue[head++];
+            blank = decode(state, positions, cells);
+            if (isGoal(blank, positions, blankGoal, goals)) {
+                performPath(parents, state, cells);
+                return true;
+            }
+            expandedNodes++;
+            if ((expandedNodes & (STOP_CHECK_INTERVAL - 1)) == 0 && stopCondition.getAsBoolean()) {
+                stopped = true;
+                return false;
+            }
+            for (int direction = 0; direction < 4; direction++) {
+                int next = geometry.neighbor(blank, direction);
+                if (next < 0 || !allowed[next]) {
+                    continue;
+                }
+                decode(state, positions, cells);
+                for (int i = 0; i < positions.length; i++) {
+                    if (positions[i] == next) {
+                        positions[i] = blank;  // The tracked tile slides into the empty cell
+                    }
+                }
+                int child = encode(next, positions, cells);
+                if (!parents.contains(child)) {
+                    parents.put(child, state);
+                    if (tail == queue.length) {
+                        queue = Arrays.copyOf(queue, queue.length * 2);
+                    }
+                    queue[tail++] = child;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks if the empty tile and the tracked tiles are on goal cells.
+     *
+     * @param blank cell of the empty tile
+     * @param positions cells of the tracked tiles
+     * @param blankGoal cells the empty tile should reach, or null for any cell
+     * @param goals cells every tracked tile should reach
+     * @return true if all are on goal cells
+     */
+    private static boolean isGoal(int blank, int[] positions, boolean[] blankGoal, boolean[][] goals) {
+        if (blankGoal != null && !blankGoal[blank]) {
+            return false;
+        }
+        for (int i = 0; i < positions.length; i++) {
+            if (!goals[i][positions[i]]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Performs the moves of the empty tile from the start state of a local search to a given state.
+     *
+     * @param parents parent of every reached state
+     * @param state the last state
+     * @param cells number of cells
+     */
+    private void performPath(FingerprintTable parents, int state, int cells) {
+        int length = 0;
+        for (int s = state; parents.get(s, -1) >= 0; s = parents.get(s, -1)) {
+            length++;
+        }
+        int[] blanks = new int[length + 1]; // Cells of the empty tile along the path
+        int s = state;
+        for (int i = length; i >= 0; i--) {
+            blanks[i] = s % cells;
+            s = parents.get(s, -1);
+        }
+        for (int i = 0; i < length; i++) {
+            for (int direction = 0; direction < 4; direction++) {
+                if (geometry.neighbor(blanks[i], direction) == blanks[i + 1]) {
+                    perform(direction);
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Solves the unsolved rectangle, which is at most 3x3 or a single row or column, with IDA*.
+     * Its tiles are renumbered by their goal cells within the rectangle,
+     * so the moves that solve the renumbered board also solve the rectangle.
+     *
+     * @param top first unsolved row
+     * @param left first unsolved column
+     * @return false if the search was stopped
+     */
+    private boolean solveRemainder(int top, int left) {
+        int rows = geometry.getRows() - top;
+        int columns = geometry.getColumns() - left;
+        byte[] values = new byte[rows * columns];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < columns; j++) {
+                int value = board.getValue(top + i, left + j);
+                if (value != 0) {
+                    value = (geometry.goalRow(value) - top) * columns + geometry.goalColumn(value) - left + 1;
+                }
+                values[i * columns + j] = (byte) value;
+            }
+        }
+        Search search = new Search();
+        search.setStopCondition(stopCondition);
+        List<Action> actions = search.search(new Board(Geometry.of(rows, columns), values), Search.Strategy.IDA_STAR);
+        expandedNodes += search.getExpandedNodes();
+        if (search.getStatus() == Search.Status.TIMEOUT) {
+            stopped = true;
+            return false;
+        }
+        if (actions != null) {
+            for (Action action : actions) {
+                perform(action.getDirection().ordinal());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Performs a move on the board and adds it to the solution.
+     *
+     * @param direction direction ordinal
+     */
+    private void perform(int direction) {
+        board.slide(direction);
+        if (moveCount == moves.length) {
+            moves = Arrays.copyOf(moves, moves.length * 2);
+        }
+        moves[moveCount++] = (byte) direction;
+    }
+
+    /**
+     * Finds the cell of a tile value.
+     *
+     * @param value tile value
+     * @return cell of the tile
+     */
+    private int cellOf(int value) {
+        int columns = geometry.getColumns();
+        for (int cell = 0; cell < free.length; cell++) {
+            if (board.getValue(cell / columns, cell % columns) == value) {
+                return cell;
+            }
+        }
+        throw new IllegalArgumentException("No tile " + value);
+    }
+
+    /**
+     * Encodes the cells of the empty tile and the tracked tiles in an int.
+     *
+     * @param blank cell of the empty tile
+     * @param positions cells of the tracked tiles
+     * @param cells number of cells
+     * @return the state
+     */
+    private static int encode(int blank, int[] positions, int cells) {
+        int state = 0;
+        for (int i = positions.length - 1; i >= 0; i--) {
+            state = state * cells + positions[i];
+        }
+        return state * cells + blank;
+    }
+
+    /**
+     * Decodes a state created by encode.
+     *
+     * @param state the state
+     * @param positions filled with the cells of the tracked tiles
+     * @param cells number of cells
+     * @return cell of the empty tile
+     */
+    private static int decode(int state, int[] positions, int cells) {
+        int blank = state % cells;
+        state /= cells;
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = state % cells;
+            state /= cells;
+        }
+        return blank;
+    }
+}
@@ -1,28 +1,87 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.List;
 import java.util.ArrayList;
-import java.util.Set;
-import java.util.HashSet;
-import java.util.Queue;
-import java.util.PriorityQueue;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongSupplier;
 
-/** Contains the search algorithm. */
+/** Contains the search algorithms. */
 public class Search {
-    private int expandedNodes;
+    private static final int STOP_CHECK_INTERVAL = 1024;  // Expanded nodes between checks of the deadline, a power of 2
+    private static final double MAX_WEIGHT = 100;  // Keeps weighted priorities far below the bucket queue's limit
+    private static final double[] ANYTIME_WEIGHTS = {5, 3, 2, 1.5, 1.25, 1};  // Weights of the anytime search passes
+
+    private long expandedNodes;
     private List<Action> result;
+    private volatile List<Action> incumbent;  // Best solution found so far by the running search
+    private double anytimeLengthBound;  // Weight of the last anytime pass that ran to completion (see lengthBound)
     private Status status = Status.UNSOLVED;
+    private Board[] pathBoards;  // Boards along the path of the depth first search, reused by every iteration
+    private byte[] pathMoves;  // Moves along the path of the depth first search
+    private int goalDepth = -1;  // Length of the path to the goal found by the depth first search, or -1
+    private double weight = 2;  // Heuristic weight used by the weighted A* search
+    private Heuristic heuristic = new LinearConflictHeuristic();
+    private int threads = Runtime.getRuntime().availableProcessors();  // Worker threads used by the parallel searches
+    private final int expectedStates;  // Initial capacity of the visited states table
+    private final float loadFactor;  // Load factor of the visited states table
+    private long memoryBudget = Runtime.getRuntime().maxMemory() / 4;  // Heap bytes used by the external memory search
+    private Path spillDirectory = Paths.get(System.getProperty("java.io.tmpdir"));  // Files of the external memory search
+    private long timeLimit;  // Longest search time in nanoseconds, or 0 for no limit
+    private long deadline;  // System.nanoTime() at which the current search times out
+    private volatile boolean cancelled;
+    private BooleanSupplier stopCondition = () -> false;  // Stop condition of the search this one solves a part for
+    private SolutionCache solutionCache;  // Solutions of earlier searches, or null
+    private SearchListener listener;
+    private long sampleInterval = TimeUnit.SECONDS.toNanos(1);  // Shortest time between progress reports, in nanoseconds
+    private final AtomicLong nextSample = new AtomicLong();  // System.nanoTime() of the next progress report
+    private long startTime;  // System.nanoTime() at which the current search started
+    private long startExpandedNodes;  // Expanded nodes before the current search started
+    private long generatedNodes;  // Children generated by the current best first or IDA* search
+    private long duplicateNodes;  // Children dropped because their state was already reached
+    private long heuristicEvaluations;
+    private LongSupplier delegateExpandedNodes = () -> 0;  // Expanded nodes of the running helper search
+    private IntBucketQueue currentFrontier;  // Frontier of the running best first search, read by progress reports
+    private FingerprintTable currentReached;
+    private NodeArena currentArena;
+
+    /** Constructs a Search with a default visited states table. */
+    public Search() {
+        this(1 << 16, 0.75f);
+    }
+
+    /**
+     * Constructs a Search with a pre-sized visited states table.
+     *
+     * @param expectedStates number of states the table holds before it has to grow
+     * @param loadFactor largest fraction of table slots used before the table grows, between 0 and 1 (exclusive)
+     * @throws IllegalArgumentException if expectedStates is negative or loadFactor is out of range
+     */
+    public Search(int expectedStates, float loadFactor) {
+        if (expectedStates < 0) {
+            throw new IllegalArgumentException("Negative number of states: " + expectedStates);
+        }
+        if (!(loadFactor > 0 && loadFactor < 1)) {
+            throw new IllegalArgumentException("Load factor must be between 0 and 1: " + loadFactor);
+        }
+        this.expectedStates = expectedStates;
+        this.loadFactor = loadFactor;
+    }
 
     /**
      * Constructs the root node of the game based on an initial board.
      *
-     * @param boardString String representing the initial board
+     * @param board the initial board
      * @return The root node used to search for a solution
      */
-    private Node getRoot(String boardString) {
-        Board board = new Board(boardString);
-        State state = new State(board);
-        return new Node(state);
+    private Node getRoot(Board board) {
+        State state = new State(new Board(board));
+        return new Node(state, heuristic);
     }
 
     /**
@@ -32,38 +91,582 @@ public class Search {
      * @return List of actions which performing them will lead to the the goal state
      */
     public List<Action> search(String boardString) {
-        try {
-            Node root = getRoot(boardString);
+        return search(boardString, Strategy.GREEDY);
+    }
 
-            Queue<Node> frontier = new PriorityQueue<>(Comparator.comparing(Node::heuristicValue));  // Stores future nodes
-            Set<State> enqueued = new HashSet<>();  // Used for duplicate detection
-            frontier.add(root);  // Add the root as the first node in the frontier
-            enqueued.add(root.getState());  // Mark the root as visited
+    /**
+     * Searches for a solution using a given strategy.
+     * The search stops with status TIMEOUT when the time limit passes, and with status CANCELLED when
+     * cancel() is called. Both are checked every few expanded nodes, so the search stops shortly after.
+     *
+     * @param boardString String representing the initial board
+     * @param strategy the search algorithm to use
+     * @return List of actions which performing them will lead to the the goal state
+     * @throws UncheckedIOException if the external memory search could not use its files
+     */
+    public List<Action> search(String boardString, Strategy strategy) {
+        return search(new Board(boardString), strategy);
+    }
 
-            while (!frontier.isEmpty()) {
-                Node node = frontier.remove();  // Get a node with smallest heuristic value
-                if (node.getState().isGoal()) {
-                    result = extractSolution(node);  // Extracting the solution
+    /**
+     * Searches for a solution of a board using a given strategy (see search(String, Strategy)).
+     *
+     * @param board the initial board, which is not changed
+     * @param strategy the search algorithm to use
+     * @return List of actions which performing them will lead to the the goal state
+     * @throws UncheckedIOException if the external memory search could not use its files
+     */
+    public List<Action> search(Board board, Strategy strategy) {
+        startTime = System.nanoTime();
+        deadline = startTime + timeLimit;
+        nextSample.set(startTime + sampleInterval);
+        startExpandedNodes = expandedNodes;
+        generatedNodes = 0;
+        duplicateNodes = 0;
+        heuristicEvaluations = 0;
+        incumbent = null;
+        try {
+            if (shouldStop()) {  // Cancelled before it started
+                throw new SearchStoppedException();
+            }
+            Node root = getRoot(board);
+            if (!root.getState().isSolvable()) {  // Checked by parity, before expanding any node
+                status = Status.UNSOLVABLE;
+                return null;
+            }
+            if (solutionCache != null) {
+                byte[] moves = solutionCache.getMoves(board, strategy == Strategy.ANYTIME ? 1 : lengthBound(strategy));
+                if (moves != null) {
+                    result = extractSolution(root.getState(), moves, moves.length);
                     status = Status.SOLVED;
+                    incumbent = Collections.unmodifiableList(result);
                     return result;
                 }
-                expandedNodes++;
-                Node[] children = node.expand();
+            }
+            List<Action> solution;
+            switch (strategy) {
+                case IDA_STAR:
+                    solution = iterativeDeepeningSearch(root);
+                    break;
+                case PARALLEL_IDA_STAR:
+                    solution = parallelIterativeDeepeningSearch(root);
+                    break;
+                case HDA_STAR:
+                    solution = hashDistributedSearch(root);
+                    break;
+                case EXTERNAL_A_STAR:
+                    solution = externalSearch(root);
+                    break;
+                case BIDIRECTIONAL:
+                    solution = bidirectionalSearch(root);
+                    break;
+                case REDUCTION:
+                    solution = reductionSearch(root);
+                    break;
+                case ANYTIME:
+                    solution = anytimeSearch(root);
+                    break;
+                default:
+                    solution = bestFirstSearch(root, strategy);
+                    break;
+            }
+            if (solution != null && strategy != Strategy.ANYTIME) {
+                incumbent = Collections.unmodifiableList(solution);  // Published by the anytime search itself
+            }
+            if (solution != null && solutionCache != null) {
+                solutionCache.put(board, moves(solution), lengthBound(strategy));
+            }
+            return solution;
+        } catch (OutOfMemoryError err) {  // Out of memory - probably due to an explosion of the frontier
+            status = Status.OUT_OF_MEMORY;
+        } catch (SearchStoppedException e) {
+            status = cancelled ? Status.CANCELLED : Status.TIMEOUT;
+        } finally {
+            if (listener != null) {
+                listener.onFinish(getMetrics(), status);
+            }
+            currentFrontier = null;
+            currentReached = null;
+            currentArena = null;
+        }
+        return null;
+    }
+
+    /**
+     * Checks if the search should stop, because it was cancelled or its time limit passed.
+     * Also reports the progress to the listener once the sample interval passed, since this is only called
+     * every few expanded nodes.
+     *
+     * @return true if the search should stop
+     */
+    private boolean shouldStop() {
+        if (listener != null) {
+            sample();
+        }
+        return cancelled || (timeLimit != 0 && System.nanoTime() - deadline >= 0) || stopCondition.getAsBoolean();
+    }
+
+    /**
+     * Reports the progress to the listener if the sample interval passed since the last report.
+     * The helper searches call this from their own threads, so only the thread that claims the report makes it.
+     */
+    private void sample() {
+        long now = System.nanoTime();
+        long next = nextSample.get();
+        if (now - next >= 0 && nextSample.compareAndSet(next, now + sampleInterval)) {
+            listener.onProgress(getMetrics());
+        }
+    }
+
+    /**
+     * Stops the search if it was cancelled or its time limit passed.
+     * Only checks once every STOP_CHECK_INTERVAL expanded nodes, so it can be called for every expanded node.
+     *
+     * @throws SearchStoppedException if the search should stop
+     */
+    private void checkStop() {
+        if ((expandedNodes & (STOP_CHECK_INTERVAL - 1)) == 0 && shouldStop()) {
+            throw new SearchStoppedException();
+        }
+    }
+
+    /**
+     * Performs a best first search from a given root node.
+     * The order in which nodes are expanded depends on the strategy (see priority).
+     * The greedy search never reopens a state, while the A* searches reopen a state whenever a shorter path to it is found.
+     * Nodes are kept in a NodeArena and the frontier holds their indices, so expanding a node only writes to arrays.
+     * With a solution cache, a generated board whose shortest distance is cached gets that distance as its
+     * heuristic value, stored as the negative evaluation ~distance to mark it, and once such a node is removed from the frontier the search
+     * ends with the path to it followed by the cached solution. Exact values are never passed on to children,
+     * since the incremental heuristic evaluation expects the value it calculated itself.
+     *
+     * @param root The root node
+     * @param strategy GREEDY, A_STAR or WEIGHTED_A_STAR
+     * @return List of actions to reach the goal state, or null if there is no solution
+     */
+    private List<Action> bestFirstSearch(Node root, Strategy strategy) {
+        List<Action> solution = bestFirstSearch(root, strategy, weight, Integer.MAX_VALUE);
+        if (solution == null) {
+            status = Status.UNSOLVABLE;  // Unsolvable board
+            return null;
+        }
+        result = solution;
+        status = Status.SOLVED;
+        return result;
+    }
+
+    /**
+     * Performs a best first search from a given root node, looking only for solutions shorter than a given bound.
+     * Nodes whose path cost plus heuristic value reaches the bound are pruned.
+     *
+     * @param root The root node
+     * @param strategy GREEDY, A_STAR or WEIGHTED_A_STAR
+     * @param weight heuristic weight of WEIGHTED_A_STAR
+     * @param costBound length of a known solution, or Integer.MAX_VALUE
+     * @return List of actions to reach the goal state, or null if there is no solution shorter than the bound
+     */
+    private List<Action> bestFirstSearch(Node root, Strategy strategy, double weight, int costBound) {
+        Board rootBoard = root.getState().getBoard();
+        NodeArena arena = new NodeArena(rootBoard.getGeometry(), expectedStates);
+        IntBucketQueue frontier = new IntBucketQueue();  // Stores indices of future nodes, ordered by priority
+        FingerprintTable reached = new FingerprintTable(expectedStates, loadFactor);  // Lowest path cost found to every state
+        int rootIndex = arena.add(NodeArena.NO_PARENT, 0, rootBoard, 0, root.getEvaluation());
+        frontier.add(rootIndex, priority(0, root.heuristicValue(), strategy, weight));  // Add the root as the first node in the frontier
+        reached.put(rootBoard.getFingerprint(), 0);  // Mark the root as visited
+        currentFrontier = frontier;
+        currentReached = reached;
+        currentArena = arena;
+
+        Board board = new Board(rootBoard);  // Board of the node being expanded
+        Board child = new Board(rootBoard);  // Board of the child being generated
+        while (!frontier.isEmpty()) {
+            int node = frontier.remove();  // Get a node with smallest priority
+            arena.loadBoard(node, board);
+            int pathCost = arena.getPathCost(node);
+            if (pathCost > reached.get(board.getFingerprint(), Integer.MAX_VALUE)) {
+                continue;  // A shorter path to this state was found after the node was added
+            }
+            if (board.isInOrder()) {
+                return extractSolution(root.getState(), arena.getMoves(node), pathCost);  // Extracting the solution
+            }
+            long evaluation = arena.getEvaluation(node);
+            if (evaluation < 0) {  // Exact distance from the solution cache
+                byte[] cachedMoves = solutionCache.getMoves(board, 1);
+                if (cachedMoves != null) {
+                    byte[] moves = arena.getMoves(node);
+                    moves = Arrays.copyOf(moves, pathCost + cachedMoves.length);
+                    System.arraycopy(cachedMoves, 0, moves, pathCost, cachedMoves.length);
+                    return extractSolution(root.getState(), moves, moves.length);
+                }
+                evaluation = heuristic.evaluatePacked(board);  // Evicted since it was looked up
+            }
+            expandedNodes++;
+            checkStop();
 
-                for (Node child : children) {  // Iterate over all possible child nodes
-                    if (!enqueued.contains(child.getState())) {  // Check for duplication
-                        enqueued.add(child.getState());  // Mark the child as visited
-                        frontier.add(child);
+            for (int move = 0; move < 4; move++) {  // Iterate over all possible moves
+                if (!board.canSlide(move)) {
+                    continue;
+                }
+                child.copyFrom(board);
+                child.slide(move);
+                generatedNodes++;
+                long fingerprint = child.getFingerprint();
+                int reachedCost = reached.get(fingerprint, -1);
+                if (reachedCost >= 0 && (strategy == Strategy.GREEDY || pathCost + 1 >= reachedCost)) {
+                    duplicateNodes++;  // Already reached by a path that is not longer, the greedy search never reopens
+                } else {
+                    long childEvaluation = heuristic.evaluatePacked(board, child, evaluation);
+                    int childValue = heuristic.valueOf(childEvaluation);
+                    heuristicEvaluations++;
+                    int exactDistance = solutionCache == null ? -1 : solutionCache.getDistance(child);
+                    if (exactDistance >= 0) {
+                        childValue = exactDistance;
+                    }
+                    if (pathCost + 1 + childValue >= costBound) {
+                        continue;  // Cannot lead to a solution shorter than the bound
                     }
+                    reached.put(fingerprint, pathCost + 1);  // Mark the child as visited
+                    int childIndex = arena.add(node, move, child, pathCost + 1,
+                            exactDistance >= 0 ? ~exactDistance : childEvaluation);
+                    frontier.add(childIndex, priority(pathCost + 1, childValue, strategy, weight));
                 }
             }
-            status = Status.UNSOLVABLE;  // Unsolvable board
-        } catch (OutOfMemoryError err) {  // Out of memory - probably due to an explosion of the frontier
-            status = Status.OUT_OF_MEMORY;
         }
         return null;
     }
 
+    /**
+     * Checks if a strategy always finds a shortest solution.
+     *
+     * @param strategy the strategy
+     * @return true for the strategies whose solutions are shortest when the heuristic never overestimates
+     */
+    private static boolean isOptimal(Strategy strategy) {
+        switch (strategy) {
+            case A_STAR:
+            case IDA_STAR:
+            case PARALLEL_IDA_STAR:
+            case HDA_STAR:
+            case EXTERNAL_A_STAR:
+            case BIDIRECTIONAL:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Returns how many times longer than a shortest solution the solutions of a strategy can be.
+     *
+     * @param strategy the strategy
+     * @return 1 for the strategies that find shortest solutions, the weight for WEIGHTED_A_STAR,
+     *         the weight of the last pass that ran to completion for ANYTIME (once it ended),
+     *         or Double.POSITIVE_INFINITY for the strategies without a bound
+     */
+    private double lengthBound(Strategy strategy) {
+        if (isOptimal(strategy)) {
+            return 1;
+        }
+        switch (strategy) {
+            case WEIGHTED_A_STAR:
+                return weight;
+            case ANYTIME:
+                return anytimeLengthBound;
+            default:
+                return Double.POSITIVE_INFINITY;
+        }
+    }
+
+    /**
+     * Returns the priority of a node in the frontier of a best first search.
+     * Nodes with lower priorities are expanded first.
+     *
+     * @param pathCost path cost of the node
+     * @param heuristicValue heuristic value of the node
+     * @param strategy GREEDY, A_STAR or WEIGHTED_A_STAR
+     * @param weight heuristic weight of WEIGHTED_A_STAR
+     * @return heuristic value for GREEDY, path cost plus (weighted) heuristic value for the A* searches
+     */
+    private static int priority(int pathCost, int heuristicValue, Strategy strategy, double weight) {
+        switch (strategy) {
+            case A_STAR:
+                return pathCost + heuristicValue;
+            case WEIGHTED_A_STAR:
+                return pathCost + (int) (weight * heuristicValue);
+            default:
+                return heuristicValue;
+        }
+    }
+
+    /**
+     * Performs an Iterative Deepening A* search from a given root node.
+     * Only the current path is kept in memory, and the returned solution is a shortest one.
+     * The path is kept as one board per depth, which are overwritten in place, so no objects are created per node.
+     *
+     * @param root The root node
+     * @return List of actions to reach the goal state, or null if there is no solution
+     */
+    private List<Action> iterativeDeepeningSearch(Node root) {
+        pathBoards = new Board[] {root.getState().getBoard()};
+        pathMoves = new byte[1];
+        int bound = root.heuristicValue();
+        try {
+            while (bound != Integer.MAX_VALUE) {
+                int nextBound = depthFirstSearch(0, root.getEvaluation(), bound);
+                if (goalDepth >= 0) {
+                    result = extractSolution(root.getState(), pathMoves, goalDepth);  // Extracting the solution
+                    status = Status.SOLVED;
+                    return result;
+                }
+                bound = nextBound;  // Smallest cost that exceeded the previous bound
+            }
+        } finally {
+            pathBoards = null;
+            pathMoves = null;
+            goalDepth = -1;
+        }
+        status = Status.UNSOLVABLE;  // Unsolvable board
+        return null;
+    }
+
+    /**
+     * Performs a single cost-bounded depth first search, used by the Iterative Deepening A* search.
+     * The board at the given depth is pathBoards[depth], and the moves that led to it are pathMoves[0..depth).
+     * Moves that undo the previous move are skipped.
+     * If a goal board is found its depth is stored in goalDepth.
+     *
+     * @param depth number of moves from the root, which is also the path cost
+     * @param evaluation packed heuristic evaluation of the board at the given depth
+     * @param bound Maximal estimated solution cost to search
+     * @return Smallest estimated cost that exceeded the bound (or Integer.MAX_VALUE if there is none)
+     */
+    private int depthFirstSearch(int depth, long evaluation, int bound) {
+        int estimatedCost = depth + heuristic.valueOf(evaluation);
+        if (estimatedCost > bound) {
+            return estimatedCost;
+        }
+        Board board = pathBoards[depth];
+        if (board.isInOrder()) {
+            goalDepth = depth;
+            return estimatedCost;
+        }
+        expandedNodes++;
+        checkStop();
+        if (depth + 1 == pathBoards.length) {  // First time the path is this long
+            pathBoards = Arrays.copyOf(pathBoards, pathBoards.length * 2);
+            pathMoves = Arrays.copyOf(pathMoves, pathBoards.length);
+        }
+        if (pathBoards[depth + 1] == null) {
+            pathBoards[depth + 1] = new Board(board);
+        }
+        Board child = pathBoards[depth + 1];
+        int previousMove = depth == 0 ? -1 : pathMoves[depth - 1];
+        int nextBound = Integer.MAX_VALUE;
+        for (int move = 0; move < 4; move++) {
+            if (!board.canSlide(move) || (previousMove >= 0 && move == Direction.opposite(previousMove))) {
+                continue;  // No tile to move, or moving the same tile again undoes the previous move
+            }
+            child.copyFrom(board);
+            child.slide(move);
+            pathMoves[depth] = (byte) move;
+            long childEvaluation = heuristic.evaluatePacked(board, child, evaluation);
+            generatedNodes++;
+            heuristicEvaluations++;
+            nextBound = Math.min(nextBound, depthFirstSearch(depth + 1, childEvaluation, bound));
+            if (goalDepth >= 0) {
+                return nextBound;
+            }
+        }
+        return nextBound;
+    }
+
+    /**
+     * Performs an Iterative Deepening A* search from a given root node, using several threads.
+     *
+     * @param root The root node
+     * @return List of actions to reach the goal state, or null if there is no solution
+     */
+    private List<Action> parallelIterativeDeepeningSearch(Node root) {
+        ParallelIterativeDeepeningSearch parallelSearch = new ParallelIterativeDeepeningSearch(threads, heuristic,
+                this::shouldStop);
+        byte[] moves;
+        delegateExpandedNodes = parallelSearch::getExpandedNodes;
+        try {
+            moves = parallelSearch.search(root.getState().getBoard(), root.getEvaluation());
+        } finally {
+            expandedNodes += parallelSearch.getExpandedNodes();
+            delegateExpandedNodes = () -> 0;
+        }
+        if (moves == null) {
+            if (parallelSearch.isStopped()) {
+                throw new SearchStoppedException();
+            }
+            status = Status.UNSOLVABLE;  // Unsolvable board
+            return null;
+        }
+        result = extractSolution(root.getState(), moves, moves.length);  // Extracting the solution
+        status = Status.SOLVED;
+        return result;
+    }
+
+    /**
+     * Performs a Hash Distributed A* search from a given root node, using several threads.
+     *
+     * @param root The root node
+     * @return List of actions to reach the goal state, or null if there is no solution
+     */
+    private List<Action> hashDistributedSearch(Node root) {
+        HashDistributedSearch parallelSearch = new HashDistributedSearch(threads, heuristic, this::shouldStop);
+        delegateExpandedNodes = parallelSearch::getExpandedNodes;
+        Node goal;
+        try {
+            goal = parallelSearch.search(root);
+        } finally {
+            expandedNodes += parallelSearch.getExpandedNodes();
+            delegateExpandedNodes = () -> 0;
+        }
+        if (goal == null) {
+            if (parallelSearch.isStopped()) {
+                throw new SearchStoppedException();
+            }
+            if (!Thread.currentThread().isInterrupted()) {  // Interrupted searches stay unsolved
+                status = Status.UNSOLVABLE;  // Unsolvable board
+            }
+            return null;
+        }
+        result = extractSolution(goal);  // Extracting the solution
+        status = Status.SOLVED;
+        return result;
+    }
+
+    /**
+     * Performs an external memory search from a given root node, keeping the nodes in files.
+     *
+     * @param root The root node
+     * @return List of actions to reach the goal state, or null if there is no solution
+     * @throws UncheckedIOException if a file could not be created, written or read
+     */
+    private List<Action> externalSearch(Node root) {
+        ExternalSearch externalSearch = new ExternalSearch(heuristic, memoryBudget, spillDirectory, this::shouldStop);
+        byte[] moves;
+        delegateExpandedNodes = externalSearch::getExpandedNodes;
+        try {
+            moves = externalSearch.search(root.getState().getBoard(), root.getEvaluation());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            expandedNodes += externalSearch.getExpandedNodes();
+            delegateExpandedNodes = () -> 0;
+        }
+        if (moves == null) {
+            if (externalSearch.isStopped()) {
+                throw new SearchStoppedException();
+            }
+            status = Status.UNSOLVABLE;  // Unsolvable board
+            return null;
+        }
+        result = extractSolution(root.getState(), moves, moves.length);  // Extracting the solution
+        status = Status.SOLVED;
+        return result;
+    }
+
+    /**
+     * Performs a bidirectional search from a given root node and from the goal state.
+     *
+     * @param root The root node
+     * @return List of actions to reach the goal state, or null if there is no solution
+     */
+    private List<Action> bidirectionalSearch(Node root) {
+        BidirectionalSearch bidirectionalSearch = new BidirectionalSearch(heuristic, expectedStates, loadFactor,
+                this::shouldStop);
+        byte[] moves;
+        delegateExpandedNodes = bidirectionalSearch::getExpandedNodes;
+        try {
+            moves = bidirectionalSearch.search(root.getState().getBoard(), root.getEvaluation());
+        } finally {
+            expandedNodes += bidirectionalSearch.getExpandedNodes();
+            delegateExpandedNodes = () -> 0;
+        }
+        if (moves == null) {
+            if (bidirectionalSearch.isStopped()) {
+                throw new SearchStoppedException();
+            }
+            status = Status.UNSOLVABLE;  // Unsolvable board
+            return null;
+        }
+        result = extractSolution(root.getState(), moves, moves.length);  // Extracting the solution
+        status = Status.SOLVED;
+        return result;
+    }
+
+    /**
+     * Solves the board one row or column at a time from a given root node.
+     *
+     * @param root The root node
+     * @return List of actions to reach the goal state
+     */
+    private List<Action> reductionSearch(Node root) {
+        ReductionSearch reductionSearch = new ReductionSearch(this::shouldStop);
+        byte[] moves;
+        delegateExpandedNodes = reductionSearch::getExpandedNodes;
+        try {
+            moves = reductionSearch.search(root.getState().getBoard());
+        } finally {
+            expandedNodes += reductionSearch.getExpandedNodes();
+            delegateExpandedNodes = () -> 0;
+        }
+        if (moves == null) {  // Solvable boards are always solved, so the search was stopped
+            throw new SearchStoppedException();
+        }
+        result = extractSolution(root.getState(), moves, moves.length);  // Extracting the solution
+        status = Status.SOLVED;
+        return result;
+    }
+
+    /**
+     * Performs an anytime search from a given root node.
+     * A first solution is found right away by the reduction search, and published as the incumbent.
+     * Then weighted A* searches with decreasing weights (see ANYTIME_WEIGHTS) look for shorter solutions,
+     * pruning every node that cannot beat the incumbent, and publish each shorter solution they find.
+     * The last pass has weight 1, so once it ends the incumbent is a shortest solution.
+     * If the search is stopped before that, it ends with status SOLVED and the incumbent as its result.
+     * Once a pass ends, the incumbent is at most its weight times longer than a shortest solution,
+     * which is the bound the solution is cached with.
+     *
+     * @param root The root node
+     * @return List of actions to reach the goal state
+     */
+    private List<Action> anytimeSearch(Node root) {
+        anytimeLengthBound = Double.POSITIVE_INFINITY;  // The reduction search has no bound
+        ReductionSearch reductionSearch = new ReductionSearch(this::shouldStop);
+        byte[] moves;
+        delegateExpandedNodes = reductionSearch::getExpandedNodes;
+        try {
+            moves = reductionSearch.search(root.getState().getBoard());
+        } finally {
+            expandedNodes += reductionSearch.getExpandedNodes();
+            delegateExpandedNodes = () -> 0;
+        }
+        if (moves == null) {
+            throw new SearchStoppedException();
+        }
+        incumbent = Collections.unmodifiableList(extractSolution(root.getState(), moves, moves.length));
+        try {
+            for (double passWeight : ANYTIME_WEIGHTS) {
+                List<Action> solution = bestFirstSearch(root, Strategy.WEIGHTED_A_STAR, passWeight, incumbent.size());
+                if (solution != null) {
+                    incumbent = Collections.unmodifiableList(solution);
+                }
+                anytimeLengthBound = passWeight;
+            }
+        } catch (SearchStoppedException | OutOfMemoryError e) {
+            // Time is up or memory ran out, the incumbent is the answer
+        }
+        result = incumbent;
+        status = Status.SOLVED;
+        return result;
+    }
+
     /**
      * Extracts a solution from a given node by iterating backward from the node up to the root.
      * The given node satisfies node.getState().isGoal() == true.
@@ -82,6 +685,182 @@ public class Search {
         return actions;
     }
 
+    /**
+     * Extracts a solution from the moves that lead from a root state to the goal state.
+     * Action objects are only created here, once a solution was found.
+     *
+     * @param root the root state
+     * @param moves the moves, as direction ordinals
+     * @param length number of moves
+     * @return List of actions to reach the goal state
+     */
+    private static List<Action> extractSolution(State root, byte[] moves, int length) {
+        List<Action> actions = new ArrayList<>(length);
+        State state = root;
+        for (int i = 0; i < length; i++) {
+            actions.add(state.action(moves[i]));
+            state = state.result(moves[i]);
+        }
+        return actions;
+    }
+
+    /**
+     * Converts a solution to its moves.
+     *
+     * @param actions the actions of the solution
+     * @return direction ordinals of the actions
+     */
+    private static byte[] moves(List<Action> actions) {
+        byte[] moves = new byte[actions.size()];
+        for (int i = 0; i < moves.length; i++) {
+            moves[i] = (byte) actions.get(i).getDirection().ordinal();
+        }
+        return moves;
+    }
+
+    /**
+     * Sets the weight of the heuristic value in the weighted A* search.
+     * Higher weights expand fewer nodes, and the solutions found are at most weight times longer than the shortest ones.
+     *
+     * Use GREEDY to ignore the path cost altogether.
+     *
+     * @param weight heuristic weight, between 1 and MAX_WEIGHT (100)
+     * @throws IllegalArgumentException if weight is smaller than 1, larger than MAX_WEIGHT or not a number
+     */
+    public void setWeight(double weight) {
+        if (!(weight >= 1 && weight <= MAX_WEIGHT)) {  // Also rejects NaN
+            throw new IllegalArgumentException("Weight must be between 1 and " + MAX_WEIGHT + ": " + weight);
+        }
+        this.weight = weight;
+    }
+
+    public double getWeight() {
+        return weight;
+    }
+
+    /**
+     * Sets the number of worker threads used by the Hash Distributed A* and parallel IDA* searches.
+     * The default is the number of available processors.
+     *
+     * @param threads number of threads, at least 1
+     * @throws IllegalArgumentException if threads is smaller than 1
+     */
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Number of threads must be positive: " + threads);
+        }
+        this.threads = threads;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Sets the heuristic used to estimate the distance of states from the goal state.
+     * The default is Manhattan distance plus linear conflicts.
+     *
+     * @param heuristic the heuristic to use
+     */
+    public void setHeuristic(Heuristic heuristic) {
+        this.heuristic = heuristic;
+    }
+
+    public Heuristic getHeuristic() {
+        return heuristic;
+    }
+
+    /**
+     * Sets the number of heap bytes the external memory search may use for buffered nodes and file buffers.
+     * The default is a quarter of the maximal heap size.
+     *
+     * @param bytes the memory budget, at least 1 MB
+     * @throws IllegalArgumentException if bytes is smaller than 1 MB
+     */
+    public void setMemoryBudget(long bytes) {
+        if (bytes < 1 << 20) {
+            throw new IllegalArgumentException("Memory budget must be at least 1 MB: " + bytes);
+        }
+        memoryBudget = bytes;
+    }
+
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    /**
+     * Sets the directory the external memory search creates its files in.
+     * The default is the temporary files directory.
+     *
+     * @param directory an existing directory
+     */
+    public void setSpillDirectory(Path directory) {
+        spillDirectory = directory;
+    }
+
+    public Path getSpillDirectory() {
+        return spillDirectory;
+    }
+
+    /**
+     * Sets the cache of solutions the searches consult and fill, or null for none.
+     * A board whose solution is cached is solved right away, if the cached solution is within the strategy's bound:
+     * only a shortest solution for the strategies that find shortest solutions and ANYTIME, a solution at most
+     * weight times longer than a shortest one for WEIGHTED_A_STAR, and any solution otherwise.
+     * The best first searches use the cached shortest distances of the boards they generate.
+     * Every solution found is cached with its bound, an ANYTIME solution with the weight of the last pass that
+     * ran to completion, and the boards along a shortest solution are cached as well.
+     *
+     * @param cache the cache, which may be shared by several searches
+     */
+    public void setSolutionCache(SolutionCache cache) {
+        solutionCache = cache;
+    }
+
+    public SolutionCache getSolutionCache() {
+        return solutionCache;
+    }
+
+    /**
+     * Sets the longest time a search may run before it stops with status TIMEOUT.
+     * The default is no limit.
+     *
+     * @param milliseconds time limit, or 0 for no limit
+     * @throws IllegalArgumentException if milliseconds is negative
+     */
+    public void setTimeLimit(long milliseconds) {
+        if (milliseconds < 0) {
+            throw new IllegalArgumentException("Negative time limit: " + milliseconds);
+        }
+        timeLimit = TimeUnit.MILLISECONDS.toNanos(milliseconds);
+    }
+
+    public long getTimeLimit() {
+        return TimeUnit.NANOSECONDS.toMillis(timeLimit);
+    }
+
+    /**
+     * Sets an extra condition that stops the search with status TIMEOUT, checked together with the time limit.
+     * Used by the searches that solve a part of their board with a Search, so the part stops with them.
+     *
+     * @param stopCondition the search stops once it returns true
+     */
+    void setStopCondition(BooleanSupplier stopCondition) {
+        this.stopCondition = stopCondition;
+    }
+
+    /**
+     * Asks the search to stop with status CANCELLED.
+     * Can be called from any thread, and a search that has not started yet stops as soon as it starts.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
     public Status getStatus() {
         return status;
     }
@@ -90,14 +869,101 @@ public class Search {
         return result;
     }
 
-    public int getExpandedNodes() {
+    /**
+     * Returns the best solution found so far by the running search, and can be called from any thread.
+     * The anytime search publishes a first solution right away and replaces it whenever it finds a shorter one.
+     * Other strategies publish their solution when they end.
+     *
+     * @return unmodifiable list of actions, or null if no solution was found yet
+     */
+    public List<Action> getIncumbent() {
+        return incumbent;
+    }
+
+    public long getExpandedNodes() {
         return expandedNodes;
     }
 
+    /**
+     * Sets the listener that receives progress reports of the searches, or null for none.
+     * Reports are made from the periodic stop checks, so a listener adds no work per expanded node.
+     *
+     * @param listener the listener
+     */
+    public void setListener(SearchListener listener) {
+        this.listener = listener;
+    }
+
+    public SearchListener getListener() {
+        return listener;
+    }
+
+    /**
+     * Sets the shortest time between two progress reports to the listener.
+     * The default is one second.
+     *
+     * @param milliseconds sample interval, at least 1
+     * @throws IllegalArgumentException if milliseconds is smaller than 1
+     */
+    public void setSampleInterval(long milliseconds) {
+        if (milliseconds < 1) {
+            throw new IllegalArgumentException("Sample interval must be positive: " + milliseconds);
+        }
+        sampleInterval = TimeUnit.MILLISECONDS.toNanos(milliseconds);
+    }
+
+    public long getSampleInterval() {
+        return TimeUnit.NANOSECONDS.toMillis(sampleInterval);
+    }
+
+    /**
+     * Returns the metrics of the current search, or of the last search once it ended.
+     * Should be called from the searching thread or from the listener.
+     *
+     * @return snapshot of the search metrics
+     */
+    public SearchMetrics getMetrics() {
+        Runtime runtime = Runtime.getRuntime();
+        return new SearchMetrics(System.nanoTime() - startTime,
+                expandedNodes - startExpandedNodes + delegateExpandedNodes.getAsLong(),
+                generatedNodes, duplicateNodes, heuristicEvaluations,
+                currentFrontier == null ? 0 : currentFrontier.size(),
+                currentReached == null ? 0 : currentReached.size(),
+                currentReached == null ? 0 : currentReached.capacity(),
+                currentArena == null ? 0 : currentArena.size(),
+                runtime.totalMemory() - runtime.freeMemory());
+    }
+
     public enum Status {
         SOLVED,
         UNSOLVABLE,
         OUT_OF_MEMORY,
-        UNSOLVED
+        TIMEOUT,
+        CANCELLED,
+        UNSOLVED,
+        INVALID  // The board string was not a valid board, only reported by BatchSolver, which searches nothing
+    }
+
+    /** The algorithms that can be used to search for a solution. */
+    public enum Strategy {
+        GREEDY,  // Greedy Best First Search, finds a solution fast but not necessarily a short one
+        A_STAR,  // A*, finds a shortest solution
+        WEIGHTED_A_STAR,  // A* with a weighted heuristic, trades solution length for fewer expanded nodes
+        IDA_STAR,  // Iterative Deepening A*, finds a shortest solution using memory proportional to its length
+        PARALLEL_IDA_STAR,  // Iterative Deepening A* on several threads, finds a shortest solution (see setThreads)
+        HDA_STAR,  // Hash Distributed A*, finds a shortest solution using several threads (see setThreads)
+        EXTERNAL_A_STAR,  // Breadth first iterative deepening A* on files, finds a shortest solution (see setMemoryBudget)
+        BIDIRECTIONAL,  // Searches from the initial and the goal state until they meet, finds a shortest solution
+        REDUCTION,  // Solves one row or column at a time, finds a solution of a large board fast but not a short one
+        ANYTIME  // Finds a solution right away and keeps shortening it while time remains (see getIncumbent)
+    }
+
+    /** Thrown inside a search to unwind it when it was cancelled or its time limit passed. */
+    private static class SearchStoppedException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        SearchStoppedException() {
+            super(null, null, false, false);  // No stack trace, the exception never leaves the search
+        }
     }
 }
\ No newline at end of file
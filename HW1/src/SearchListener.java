@@ -0,0 +1,22 @@
+/**
+ * Receives progress reports of a running search (see Search.setListener).
+ * Reports are made by the searching thread, or by one of the worker threads of a parallel search,
+ * so implementations should return quickly.
+ */
+public interface SearchListener {
+    /**
+     * Called periodically while a search runs, at most once per sample interval.
+     *
+     * @param metrics the search metrics at the time of the call
+     */
+    void onProgress(SearchMetrics metrics);
+
+    /**
+     * Called once when a search ends.
+     *
+     * @param metrics the search metrics at the end of the search
+     * @param status status the search ended with
+     */
+    default void onFinish(SearchMetrics metrics, Search.Status status) {
+    }
+}
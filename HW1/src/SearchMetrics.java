@@ -0,0 +1,159 @@
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An immutable snapshot of the progress of a search (see SearchListener).
+ * Counts cover the current search only. Generated nodes, duplicates and heuristic evaluations are counted by the
+ * best first and IDA* searches, and the frontier, closed set and stored nodes are those of the running best first
+ * search, so they are 0 for the other strategies.
+ */
+public class SearchMetrics {
+    private final long elapsedNanos;
+    private final long expandedNodes;
+    private final long generatedNodes;
+    private final long duplicateNodes;
+    private final long heuristicEvaluations;
+    private final int frontierSize;
+    private final int closedSetSize;
+    private final int closedSetCapacity;
+    private final int storedNodes;
+    private final long usedHeapBytes;
+
+    /**
+     * Constructs a SearchMetrics.
+     *
+     * @param elapsedNanos time since the search started, in nanoseconds
+     * @param expandedNodes number of expanded nodes
+     * @param generatedNodes number of generated children
+     * @param duplicateNodes number of generated children dropped because their state was already reached
+     * @param heuristicEvaluations number of heuristic evaluations
+     * @param frontierSize number of nodes in the frontier
+     * @param closedSetSize number of states in the reached states table
+     * @param closedSetCapacity number of slots of the reached states table
+     * @param storedNodes number of nodes kept in memory
+     * @param usedHeapBytes heap bytes in use, including garbage
+     */
+    public SearchMetrics(long elapsedNanos, long expandedNodes, long generatedNodes, long duplicateNodes,
+            long heuristicEvaluations, int frontierSize, int closedSetSize, int closedSetCapacity, int storedNodes,
+            long usedHeapBytes) {
+        this.elapsedNanos = elapsedNanos;
+        this.expandedNodes = expandedNodes;
+        this.generatedNodes = generatedNodes;
+        this.duplicateNodes = duplicateNodes;
+        this.heuristicEvaluations = heuristicEvaluations;
+        this.frontierSize = frontierSize;
+        this.closedSetSize = closedSetSize;
+        this.closedSetCapacity = closedSetCapacity;
+        this.storedNodes = storedNodes;
+        this.usedHeapBytes = usedHeapBytes;
+    }
+
+    /**
+     * Returns the time since the search started.
+     *
+     * @return elapsed time in milliseconds
+     */
+    public long getElapsedTime() {
+        return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+    }
+
+    public long getExpandedNodes() {
+        return expandedNodes;
+    }
+
+    public long getGeneratedNodes() {
+        return generatedNodes;
+    }
+
+    public long getDuplicateNodes() {
+        return duplicateNodes;
+    }
+
+    public long getHeuristicEvaluations() {
+        return heuristicEvaluations;
+    }
+
+    public int getFrontierSize() {
+        return frontierSize;
+    }
+
+    public int getClosedSetSize() {
+        return closedSetSize;
+    }
+
+    public int getClosedSetCapacity() {
+        return closedSetCapacity;
+    }
+
+    public int getStoredNodes() {
+        return storedNodes;
+    }
+
+    public long getUsedHeapBytes() {
+        return usedHeapBytes;
+    }
+
+    /**
+     * Returns the average number of nodes expanded per second since the search started.
+     *
+     * @return expanded nodes per second
+     */
+    public double getExpandedPerSecond() {
+        return perSecond(expandedNodes);
+    }
+
+    /**
+     * Returns the average number of children generated per second since the search started.
+     *
+     * @return generated nodes per second
+     */
+    public double getGeneratedPerSecond() {
+        return perSecond(generatedNodes);
+    }
+
+    /**
+     * Returns the fraction of the reached states table slots in use.
+     *
+     * @return load of the table, between 0 and 1, or 0 if there is no table
+     */
+    public double getClosedSetLoad() {
+        return closedSetCapacity == 0 ? 0 : (double) closedSetSize / closedSetCapacity;
+    }
+
+    /**
+     * Returns the fraction of generated children that were dropped as duplicates.
+     *
+     * @return duplicate hit rate, between 0 and 1
+     */
+    public double getDuplicateRate() {
+        return generatedNodes == 0 ? 0 : (double) duplicateNodes / generatedNodes;
+    }
+
+    /**
+     * Returns the approximate heap bytes per stored node: the used heap divided by the number of stored nodes.
+     * The used heap includes garbage and everything else on the heap, so this is an upper bound.
+     *
+     * @return heap bytes per node, or 0 if no nodes are stored
+     */
+    public double getHeapBytesPerNode() {
+        return storedNodes == 0 ? 0 : (double) usedHeapBytes / storedNodes;
+    }
+
+    /**
+     * Calculates a rate over the elapsed time.
+     *
+     * @param count number of events since the search started
+     * @return events per second
+     */
+    private double perSecond(long count) {
+        return elapsedNanos == 0 ? 0 : count * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d ms: %d expanded (%.0f/s), %d generated (%.0f/s), %d duplicates (%.1f%%), "
+                        + "%d evaluations, frontier %d, closed %d/%d (%.2f load), %d nodes (~%.0f bytes each)",
+                getElapsedTime(), expandedNodes, getExpandedPerSecond(), generatedNodes, getGeneratedPerSecond(),
+                duplicateNodes, getDuplicateRate() * 100, heuristicEvaluations, frontierSize, closedSetSize,
+                closedSetCapacity, getClosedSetLoad(), storedNodes, getHeapBytesPerNode());
+    }
+}
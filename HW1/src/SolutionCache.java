@@ -0,0 +1,357 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A persistent cache of solved boards, kept in a memory mapped file so it survives between runs.
+ * Every entry holds a board's fingerprint and size, its distance to the goal, whether that distance is the shortest,
+ * the bound of the search that found it (how many times longer than a shortest solution it can be),
+ * and the moves of the solution packed two bits per move.
+ * Solutions longer than MAX_MOVES are not cached.
+ * <p>
+ * The file is a set-associative table: a fingerprint selects a set of WAYS slots, and when the set is full
+ * an entry is evicted by the clock algorithm. Looking an entry up marks it as referenced, and the clock hand
+ * of the set skips (and unmarks) referenced entries, so recently used entries stay.
+ * Fingerprints are stable between runs (see Geometry), and cached moves are replayed before a solution is returned,
+ * so a fingerprint collision can never return a wrong solution.
+ * <p>
+ * The methods are synchronized, so one cache can be shared by the searches of a BatchSolver,
+ * but a file must not be opened by two processes at the same time.
+ */
+public class SolutionCache implements Closeable {
+    public static final int MAX_MOVES = 448;  // Longest cached solution
+    private static final int MAGIC = 0x53434331;  // "SCC1"
+    private static final int HEADER_BYTES = 64;  // Magic and number of sets, padded to a cache line
+    private static final int WAYS = 4;  // Slots per set
+    private static final int SLOT_BYTES = 128;  // Two cache lines: 16 bytes of fields and MAX_MOVES packed moves
+    private static final int KEY = 0;  // Offsets of the slot fields
+    private static final int ROWS = 8;
+    private static final int COLUMNS = 9;
+    private static final int FLAGS = 10;
+    private static final int HAND = 11;  // Clock hand of the set, only used in the first slot of a set
+    private static final int DISTANCE = 12;
+    private static final int BOUND = 14;  // Length bound in BOUND_UNITS, or 0 for none (also in files without bounds)
+    private static final int MOVES = 16;
+    private static final int OPTIMAL = 1;  // Flag bits
+    private static final int REFERENCED = 2;
+    private static final int BOUND_UNITS = 256;  // Bound fractions stored per 1 of bound
+    private static final int MAX_SETS = 1 << 21;  // Keeps the file below 2 GB, the largest mapping
+
+    private final Path file;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int sets;
+
+    /**
+     * Constructs a SolutionCache over an open file.
+     *
+     * @param file the file
+     * @param channel channel of the file, closed by close()
+     * @param buffer the mapped file
+     * @param sets number of sets, a power of 2
+     */
+    private SolutionCache(Path file, FileChannel channel, MappedByteBuffer buffer, int sets) {
+        this.file = file;
+        this.channel = channel;
+        this.buffer = buffer;
+        this.sets = sets;
+    }
+
+    /**
+     * Opens a cache file, or creates it if it does not exist.
+     * An existing file keeps the capacity it was created with.
+     *
+     * @param file the file
+     * @param capacity number of entries of a new file, rounded up to a power of 2
+     * @return the cache
+     * @throws IOException if the file cannot be created, read or mapped, or is not a cache file
+     * @throws IllegalArgumentException if capacity is not positive
+     */
+    public static SolutionCache open(Path file, int capacity) throws IOException {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        boolean exists = Files.exists(file);
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            int sets;
+            if (exists) {
+                ByteBuffer header = ByteBuffer.allocate(2 * Integer.BYTES);
+                channel.read(header, 0);
+                header.flip();
+                if (header.remaining() < header.capacity() || header.getInt() != MAGIC) {
+                    throw new IOException(file + " is not a solution cache file");
+                }
+                sets = header.getInt();
+                if (sets < 1 || sets > MAX_SETS || Integer.bitCount(sets) != 1
+                        || channel.size() != fileSize(sets)) {
+                    throw new IOException(file + " is not a valid solution cache file");
+                }
+            } else {
+                sets = 1;
+                while (sets * WAYS < capacity && sets < MAX_SETS) {
+                    sets <<= 1;
+                }
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize(sets));
+            if (!exists) {  // The mapping extends the file with zeros, which are empty slots
+                buffer.putInt(0, MAGIC).putInt(Integer.BYTES, sets);
+            }
+            return new SolutionCache(file, channel, buffer, sets);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Looks up the solution of a board.
+     *
+     * @param board the board
+     * @param bound largest number of times a solution may be longer than a shortest one: 1 for only shortest
+     *        solutions, or Double.POSITIVE_INFINITY for any solution
+     * @return direction ordinals of the solution's moves, or null if no solution within the bound is cached
+     */
+    public synchronized byte[] getMoves(Board board, double bound) {
+        int slot = find(board);
+        if (slot < 0 || bound(slot) > bound) {
+            return null;
+        }
+        byte[] moves = new byte[Short.toUnsignedInt(buffer.getShort(slot + DISTANCE))];
+        for (int i = 0; i < moves.length; i++) {
+            moves[i] = (byte) (buffer.get(slot + MOVES + (i >> 2)) >> ((i & 3) << 1) & 3);
+        }
+        Board replay = new Board(board);  // Guards against fingerprint collisions
+        for (byte move : moves) {
+            if (!replay.canSlide(move)) {
+                return null;
+            }
+            replay.slide(move);
+        }
+        return replay.isInOrder() ? moves : null;
+    }
+
+    /**
+     * Looks up the shortest distance of a board from the goal board.
+     *
+     * @param board the board
+     * @return number of moves of a shortest solution, or -1 if no shortest solution of the board is cached
+     */
+    public synchronized int getDistance(Board board) {
+        int slot = find(board);
+        if (slot < 0 || (buffer.get(slot + FLAGS) & OPTIMAL) == 0) {
+            return -1;
+        }
+        return Short.toUnsignedInt(buffer.getShort(slot + DISTANCE));
+    }
+
+    /**
+     * Caches the solution of a board.
+     * For a shortest solution, every board along the solution is cached as well, since the rest of a shortest
+     * solution is a shortest solution of the board it starts from.
+     * An entry is only replaced by a solution with a smaller bound, or with the same bound and fewer moves.
+     *
+     * @param board the initial board
+     * @param moves direction ordinals of the solution's moves
+     * @param bound number of times the solution can be longer than a shortest one, as guaranteed by the search
+     *        that found it: 1 for a shortest solution, or Double.POSITIVE_INFINITY for none
+     * @throws IllegalArgumentException if bound is smaller than 1 or not a number
+     */
+    public synchronized void put(Board board, byte[] moves, double bound) {
+        if (!(bound >= 1)) {
+            throw new IllegalArgumentException("Bound must be at least 1: " + bound);
+        }
+        if (moves.length > MAX_MOVES) {
+            return;
+        }
+        boolean optimal = bound == 1;
+        Board current = new Board(board);
+        for (int i = 0; i < moves.length; i++) {
+            put(current, moves, i, bound);
+            if (!optimal) {
+                break;
+            }
+            current.slide(moves[i]);
+        }
+    }
+
+    /**
+     * Writes the changes to the file.
+     */
+    public synchronized void flush() {
+        buffer.force();
+    }
+
+    /**
+     * Returns the number of entries the cache holds.
+     *
+     * @return capacity
+     */
+    public int getCapacity() {
+        return sets * WAYS;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Writes the changes to the file and closes it.
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    /**
+     * Caches the rest of a solution, starting from a board along it.
+     *
+     * @param board the board after the first offset moves
+     * @param moves direction ordinals of the whole solution's moves
+     * @param offset number of moves before the board
+     * @param bound length bound of the solution, at least 1
+     */
+    private void put(Board board, byte[] moves, int offset, double bound) {
+        long key = board.getFingerprint();
+        if (key == 0) {
+            return;  // Marks an empty slot
+        }
+        int distance = moves.length - offset;
+        int encodedBound = encodeBound(bound);
+        int slot = find(board);
+        if (slot >= 0) {
+            double cachedBound = bound(slot);
+            double newBound = decodeBound(encodedBound);
+            if (cachedBound < newBound || (cachedBound == newBound
+                    && Short.toUnsignedInt(buffer.getShort(slot + DISTANCE)) <= distance)) {
+                return;  // The cached solution is at least as good
+            }
+        } else {
+            slot = victim(key);
+        }
+        buffer.putLong(slot + KEY, key);
+        buffer.put(slot + ROWS, (byte) board.getRows());
+        buffer.put(slot + COLUMNS, (byte) board.getColumns());
+        buffer.put(slot + FLAGS, (byte) ((bound == 1 ? OPTIMAL : 0) | REFERENCED));
+        buffer.putShort(slot + DISTANCE, (short) distance);
+        buffer.putShort(slot + BOUND, (short) encodedBound);
+        for (int i = 0; i < distance; i += 4) {
+            int packed = 0;
+            for (int j = 0; j < 4 && i + j < distance; j++) {
+                packed |= moves[offset + i + j] << (j << 1);
+            }
+            buffer.put(slot + MOVES + (i >> 2), (byte) packed);
+        }
+    }
+
+    /**
+     * Returns the length bound of a cached solution.
+     *
+     * @param slot byte offset of the slot
+     * @return number of times the solution can be longer than a shortest one, or Double.POSITIVE_INFINITY
+     */
+    private double bound(int slot) {
+        if ((buffer.get(slot + FLAGS) & OPTIMAL) != 0) {
+            return 1;
+        }
+        return decodeBound(Short.toUnsignedInt(buffer.getShort(slot + BOUND)));
+    }
+
+    /**
+     * Encodes a length bound, rounding it up so the cache never promises more than the search did.
+     *
+     * @param bound length bound, at least 1
+     * @return bound in BOUND_UNITS, or 0 if it does not fit in the slot field
+     */
+    private static int encodeBound(double bound) {
+        double units = Math.ceil(bound * BOUND_UNITS);
+        return units > Character.MAX_VALUE ? 0 : (int) units;
+    }
+
+    /**
+     * Decodes a length bound.
+     *
+     * @param encodedBound bound in BOUND_UNITS, or 0 for none
+     * @return the bound, or Double.POSITIVE_INFINITY for none
+     */
+    private static double decodeBound(int encodedBound) {
+        return encodedBound == 0 ? Double.POSITIVE_INFINITY : (double) encodedBound / BOUND_UNITS;
+    }
+
+    /**
+     * Finds the slot of a board and marks it as referenced.
+     *
+     * @param board the board
+     * @return byte offset of the slot, or -1 if the board is not cached
+     */
+    private int find(Board board) {
+        long key = board.getFingerprint();
+        int set = setOffset(key);
+        for (int way = 0; way < WAYS; way++) {
+            int slot = set + way * SLOT_BYTES;
+            if (buffer.getLong(slot + KEY) == key && buffer.get(slot + ROWS) == (byte) board.getRows()
+                    && buffer.get(slot + COLUMNS) == (byte) board.getColumns()) {
+                buffer.put(slot + FLAGS, (byte) (buffer.get(slot + FLAGS) | REFERENCED));
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Chooses the slot a new entry is written to: an empty slot of its set, or the first unreferenced slot
+     * after the clock hand, unmarking the referenced slots it passes.
+     *
+     * @param key fingerprint of the new entry
+     * @return byte offset of the slot
+     */
+    private int victim(long key) {
+        int set = setOffset(key);
+        for (int way = 0; way < WAYS; way++) {
+            if (buffer.getLong(set + way * SLOT_BYTES + KEY) == 0) {
+                return set + way * SLOT_BYTES;
+            }
+        }
+        int hand = buffer.get(set + HAND);
+        while (true) {
+            int slot = set + hand * SLOT_BYTES;
+            hand = (hand + 1) % WAYS;
+            byte flags = buffer.get(slot + FLAGS);
+            if ((flags & REFERENCED) == 0) {
+                buffer.put(set + HAND, (byte) hand);
+                return slot;
+            }
+            buffer.put(slot + FLAGS, (byte) (flags & ~REFERENCED));
+        }
+    }
+
+    /**
+     * Returns the byte offset of the set of a key.
+     *
+     * @param key board fingerprint
+     * @return offset of the first slot of the set
+     */
+    private int setOffset(long key) {
+        long mixed = key * 0x9E3779B97F4A7C15L;
+        return HEADER_BYTES + (int) (mixed >>> 40 & (sets - 1)) * WAYS * SLOT_BYTES;
+    }
+
+    /**
+     * Returns the size of a cache file.
+     *
+     * @param sets number of sets
+     * @return file size in bytes
+     */
+    private static long fileSize(int sets) {
+        return HEADER_BYTES + (long) sets * WAYS * SLOT_BYTES;
+    }
+}
@@ -24,41 +24,36 @@ public class State {
         return board.isInOrder();
     }
 
+    /**
+     * Checks if the goal state can be reached from the current state.
+     *
+     * @return true if solvable, false otherwise
+     */
+    public boolean isSolvable() {
+        return board.isSolvable();
+    }
+
     /**
      * Returns an array with all possible actions in the current state.
      * (In order: Up, Down, Right, Left).
      * If an action is not possible it will not be included in the array,
      * then the array will be of a smaller size.
+     * Searches use canMove and result(int) instead, which do not create Action objects.
      *
      * @return array of possible actions
      */
     public Action[] actions() {
-        // Get empty tile location
-        int row = board.getEmptyTileRow();
-        int column = board.getEmptyTileColumn();
-
-        // Get the surrounding tiles
-        Tile[] tiles = new Tile[4];
-        tiles[0] = board.getTile(row + 1, column); // Up
-        tiles[1] = board.getTile(row - 1, column); // Down
-        tiles[2] = board.getTile(row, column - 1); // Right
-        tiles[3] = board.getTile(row, column + 1); // Left
-
-        // Check for valid tiles and determine array size
         int size = 0;
-        for (Tile tile : tiles) {
-            if (tile != null) {
+        for (int move = 0; move < 4; move++) {
+            if (board.canSlide(move)) {
                 size++;
             }
         }
-
-        // Create possible actions array
         Action[] actions = new Action[size];
         int index = 0;
-        for (int i = 0; i < tiles.length; i++) {
-            if (tiles[i] != null) {
-                actions[index] = new Action(tiles[i], Direction.values()[i]);
-                index++;
+        for (int move = 0; move < 4; move++) {
+            if (board.canSlide(move)) {
+                actions[index++] = action(move);
             }
         }
         return actions;
@@ -71,43 +66,51 @@ public class State {
      * @return new state as a result from provided action
      */
     public State result(Action action) {
-        // Create a copy of current board
-        Board newBoard = new Board(board);
+        return result(action.getDirection().ordinal());
+    }
 
-        // Get empty tile location
-        int row = board.getEmptyTileRow();
-        int column = board.getEmptyTileColumn();
-
-        // Store empty tile
-        Tile emptyTile = newBoard.getTile(row, column);
-
-        // Move number tile over empty tile
-        newBoard.setTile(row, column, action.getTile());
-
-        // Move empty tile over old number tile and update new empty tile location
-        switch (action.getDirection()) {
-            case UP:
-                newBoard.setTile(row + 1, column, emptyTile);
-                newBoard.updateEmptyTileLocation(row + 1, column);
-                break;
-            case DOWN:
-                newBoard.setTile(row - 1, column, emptyTile);
-                newBoard.updateEmptyTileLocation(row - 1, column);
-                break;
-            case RIGHT:
-                newBoard.setTile(row, column - 1, emptyTile);
-                newBoard.updateEmptyTileLocation(row, column - 1);
-                break;
-            case LEFT:
-                newBoard.setTile(row, column + 1, emptyTile);
-                newBoard.updateEmptyTileLocation(row, column + 1);
-                break;
-        }
+    /**
+     * Checks if a move is possible in the current state.
+     * A move is the ordinal of the direction the tile next to the empty tile slides in.
+     *
+     * @param move the move
+     * @return true if a tile can slide in that direction
+     */
+    public boolean canMove(int move) {
+        return board.canSlide(move);
+    }
 
-        // Create new state
+    /**
+     * Performs a move on current state and returns the resulted state.
+     *
+     * @param move the move, canMove(move) should be true
+     * @return new state as a result from the move
+     */
+    public State result(int move) {
+        Board newBoard = new Board(board);
+        newBoard.slide(move);
         return new State(newBoard);
     }
 
+    /**
+     * Creates the action object of a move in the current state.
+     *
+     * @param move the move, canMove(move) should be true
+     * @return action that slides the tile next to the empty tile in the move direction
+     */
+    public Action action(int move) {
+        return new Action(board.getGeometry().tile(board.getSlidingValue(move)), Direction.of(move));
+    }
+
+    /**
+     * Returns the board of the state.
+     *
+     * @return board
+     */
+    public Board getBoard() {
+        return board;
+    }
+
     /**
      * Gets the estimated number of moves remaining to get to the goal state.
      * This number represents the heuristic value.
@@ -118,6 +121,61 @@ public class State {
         return board.calculateHeuristicValue();
     }
 
+    /**
+     * Gets the estimated number of moves remaining to get to the goal state, using a given heuristic.
+     *
+     * @param heuristic the heuristic to use
+     * @return heuristic value
+     */
+    public int getHeuristicValue(Heuristic heuristic) {
+        return heuristic.evaluate(board);
+    }
+
+    /**
+     * Gets the heuristic value of a state that resulted from a single action on a parent state,
+     * based on the heuristic value of the parent.
+     *
+     * @param heuristic the heuristic to use
+     * @param parent the state the action was performed on
+     * @param parentValue heuristic value of the parent state
+     * @return heuristic value
+     */
+    public int getHeuristicValue(Heuristic heuristic, State parent, int parentValue) {
+        return heuristic.evaluate(parent.board, board, parentValue);
+    }
+
+    /**
+     * Gets the packed heuristic evaluation of the state (see Heuristic.evaluatePacked).
+     *
+     * @param heuristic the heuristic to use
+     * @return packed heuristic evaluation
+     */
+    public long getEvaluation(Heuristic heuristic) {
+        return heuristic.evaluatePacked(board);
+    }
+
+    /**
+     * Gets the packed heuristic evaluation of a state that resulted from a single action on a parent state,
+     * based on the packed evaluation of the parent.
+     *
+     * @param heuristic the heuristic to use
+     * @param parent the state the action was performed on
+     * @param parentEvaluation packed heuristic evaluation of the parent state
+     * @return packed heuristic evaluation
+     */
+    public long getEvaluation(Heuristic heuristic, State parent, long parentEvaluation) {
+        return heuristic.evaluatePacked(parent.board, board, parentEvaluation);
+    }
+
+    /**
+     * Returns the 64-bit fingerprint of the state's board, used for duplicate detection.
+     *
+     * @return state fingerprint
+     */
+    public long getFingerprint() {
+        return board.getFingerprint();
+    }
+
     @Override
     public boolean equals(Object other) {
         if (!(other instanceof State)) {
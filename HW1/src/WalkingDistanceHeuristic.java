@@ -0,0 +1,301 @@
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The walking distance heuristic (Takahashi), combined with the linear conflict heuristic.
+ * <p>
+ * The vertical walking distance forgets which column every tile is in, and only keeps how many tiles of every
+ * goal row are in every row, and the row of the empty tile. A vertical move takes a tile from a row next to the
+ * empty tile's row into it, and a breadth first search from the goal finds the number of vertical moves every
+ * such state needs. The horizontal walking distance does the same for columns, and since every move is either
+ * vertical or horizontal, the sum never overestimates. It is at least the Manhattan distance, since it also counts
+ * the moves tiles of the same row or column make around each other.
+ * <p>
+ * Tables are built once per rows x columns and cached, and square boards use one table for both directions.
+ * A state is encoded in a long: a counter per row and goal row except the last goal row, whose counter follows
+ * from the number of tiles in the row, and the empty tile's row. Boards whose counters do not fit, or whose tables
+ * would have more than MAX_STATES states, fall back to the linear conflict heuristic (that is, boards larger than
+ * 5x5).
+ * <p>
+ * Linear conflicts are sometimes larger than the walking distance (on about a third of random 4x4 boards), so the
+ * value is the larger of the two, and the heuristic is never smaller than the linear conflict heuristic.
+ * The packed evaluation keeps the linear conflict value beside the value, VALUE_BITS bits each, so children update
+ * it incrementally, also inside Heuristic.max().
+ */
+public class WalkingDistanceHeuristic implements Heuristic {
+    private static final int MAX_STATES = 1 << 22; // Largest table that is built
+    private static final Map<Long, Table> TABLES = new ConcurrentHashMap<>();
+    private static final Table UNSUPPORTED = new Table(1, 0, 0, null);
+    private static final long VALUE_MASK = (1L << VALUE_BITS) - 1;
+
+    private final Heuristic linearConflict = new LinearConflictHeuristic();  // Also for boards without tables
+    private volatile Tables lastTables;  // Tables of the last board size, saves the map lookup
+
+    @Override
+    public int evaluate(Board board) {
+        return Math.max(linearConflict.evaluate(board), walkingDistance(board));
+    }
+
+    @Override
+    public int evaluate(Board parent, Board child, int parentValue) {
+        if (tables(child.getGeometry()) == null) {
+            return linearConflict.evaluate(parent, child, parentValue);
+        }
+        return evaluate(child);  // The value does not tell the linear conflicts of the parent
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalStateException if the value does not fit in VALUE_BITS bits
+     */
+    @Override
+    public long evaluatePacked(Board board) {
+        return pack(linearConflict.evaluate(board), walkingDistance(board));
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalStateException if the value does not fit in VALUE_BITS bits
+     */
+    @Override
+    public long evaluatePacked(Board parent, Board child, long parentEvaluation) {
+        int linearConflicts = linearConflict.evaluate(parent, child, (int) (parentEvaluation >>> VALUE_BITS));
+        return pack(linearConflicts, walkingDistance(child));  // Finding the parent keys takes as long
+    }
+
+    @Override
+    public int valueOf(long evaluation) {
+        return (int) (evaluation & VALUE_MASK);
+    }
+
+    @Override
+    public int evaluationBits() {
+        return 2 * VALUE_BITS;
+    }
+
+    /**
+     * Packs the linear conflict value and the value of a board into an evaluation.
+     *
+     * @param linearConflicts linear conflict value of the board
+     * @param walkingDistance walking distance of the board, or -1 if the board size has no tables
+     * @return packed evaluation
+     * @throws IllegalStateException if the value does not fit in VALUE_BITS bits
+     */
+    private static long pack(int linearConflicts, int walkingDistance) {
+        int value = Math.max(linearConflicts, walkingDistance);
+        if (value > VALUE_MASK) {
+            throw new IllegalStateException("Heuristic value does not fit in a packed evaluation: " + value);
+        }
+        return (long) linearConflicts << VALUE_BITS | value;
+    }
+
+    /**
+     * Calculates the walking distance of a board.
+     *
+     * @param board the board
+     * @return walking distance, or -1 if the board size has no tables
+     */
+    private int walkingDistance(Board board) {
+        Geometry geometry = board.getGeometry();
+        Tables tables = tables(geometry);
+        if (tables == null) {
+            return -1;
+        }
+        Table vertical = tables.vertical;
+        Table horizontal = tables.horizontal;
+        long verticalKey = 0;
+        long horizontalKey = 0;
+        for (int i = 0; i < geometry.getRows(); i++) {
+            for (int j = 0; j < geometry.getColumns(); j++) {
+                int tile = board.getValue(i, j);
+                if (tile == 0) {
+                    verticalKey |= (long) i << vertical.emptyShift;
+                    horizontalKey |= (long) j << horizontal.emptyShift;
+                } else {
+                    verticalKey = vertical.add(verticalKey, i, geometry.goalRow(tile));
+                    horizontalKey = horizontal.add(horizontalKey, j, geometry.goalColumn(tile));
+                }
+            }
+        }
+        return vertical.distance(verticalKey) + horizontal.distance(horizontalKey);
+    }
+
+    /**
+     * Returns the tables of a board size, building them the first time.
+     *
+     * @param geometry size of the board
+     * @return the tables, or null if the board size is not supported
+     */
+    private Tables tables(Geometry geometry) {
+        Tables tables = lastTables;
+        if (tables == null || tables.geometry != geometry) {
+            tables = new Tables(geometry, table(geometry.getRows(), geometry.getColumns()),
+                    table(geometry.getColumns(), geometry.getRows()));
+            lastTables = tables;
+        }
+        return tables.vertical == UNSUPPORTED || tables.horizontal == UNSUPPORTED ? null : tables;
+    }
+
+    /**
+     * Returns the table of a direction, building it the first time.
+     *
+     * @param lines number of rows (or columns) the tiles move between
+     * @param lineLength number of tiles in every row (or column)
+     * @return the table, or UNSUPPORTED if it is too large
+     */
+    private static Table table(int lines, int lineLength) {
+        return TABLES.computeIfAbsent(((long) lines << 32) | lineLength, key -> Table.build(lines, lineLength));
+    }
+
+    /** The tables of both directions of a board size. */
+    private static class Tables {
+        private final Geometry geometry;
+        private final Table vertical;
+        private final Table horizontal;
+
+        Tables(Geometry geometry, Table vertical, Table horizontal) {
+            this.geometry = geometry;
+            this.vertical = vertical;
+            this.horizontal = horizontal;
+        }
+    }
+
+    /** The walking distances of one direction, by encoded state. */
+    private static class Table {
+        private final int lines;
+        private final int lineLength;
+        private final int bits; // Bits of every counter
+        private final int emptyShift; // Position of the empty tile's line in a key
+        private final FingerprintTable distances;
+
+        /**
+         * Constructs a Table.
+         *
+         * @param lines number of lines the tiles move between
+         * @param lineLength number of tiles in every line
+         * @param bits bits of every counter
+         * @param distances walking distance of every key
+         */
+        Table(int lines, int lineLength, int bits, FingerprintTable distances) {
+            this.lines = lines;
+            this.lineLength = lineLength;
+            this.bits = bits;
+            this.emptyShift = lines * (lines - 1) * bits;
+            this.distances = distances;
+        }
+
+        /**
+         * Returns the position of a counter in a key.
+         *
+         * @param line line the tiles are in
+         * @param goalLine goal line of the tiles, not the last line
+         * @return bit position
+         */
+        int shift(int line, int goalLine) {
+            return (line * (lines - 1) + goalLine) * bits;
+        }
+
+        /**
+         * Adds a tile to a state.
+         *
+         * @param key encoded state
+         * @param line line the tile is in
+         * @param goalLine goal line of the tile
+         * @return encoded state with the tile
+         */
+        long add(long key, int line, int goalLine) {
+            return goalLine == lines - 1 ? key : key + (1L << shift(line, goalLine));
+        }
+
+        /**
+         * Returns the number of tiles of a goal line in a line.
+         *
+         * @param key encoded state
+         * @param line line the tiles are in, not the empty tile's line
+         * @param goalLine goal line of the tiles
+         * @return number of tiles
+         */
+        int count(long key, int line, int goalLine) {
+            long counterMask = (1L << bits) - 1;
+            if (goalLine < lines - 1) {
+                return (int) (key >>> shift(line, goalLine) & counterMask);
+            }
+            int count = lineLength;
+            for (int g = 0; g < lines - 1; g++) {
+                count -= (int) (key >>> shift(line, g) & counterMask);
+            }
+            return count;
+        }
+
+        /**
+         * Returns the walking distance of a state.
+         *
+         * @param key encoded state
+         * @return number of moves
+         */
+        int distance(long key) {
+            return distances.get(key, 0);
+        }
+
+        /**
+         * Builds the table of a direction by a breadth first search from the goal state.
+         *
+         * @param lines number of lines the tiles move between
+         * @param lineLength number of tiles in every line
+         * @return the table, or UNSUPPORTED if the states do not fit in a long or there are too many of them
+         */
+        static Table build(int lines, int lineLength) {
+            int bits = 32 - Integer.numberOfLeadingZeros(lineLength);
+            int emptyBits = 32 - Integer.numberOfLeadingZeros(lines - 1);
+            if ((long) lines * (lines - 1) * bits + emptyBits > Long.SIZE - 1) {
+                return UNSUPPORTED;
+            }
+            Table table = new Table(lines, lineLength, bits, new FingerprintTable());
+            long goal = (long) (lines - 1) << table.emptyShift;
+            for (int line = 0; line < lines - 1; line++) {
+                goal += (long) lineLength << table.shift(line, line);
+            }
+
+            long[] queue = new long[1 << 10];
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = goal;
+            table.distances.put(goal, 0);
+            while (head < tail) {
+                long state = queue[head++];
+                int distance = table.distances.get(state, 0);
+                int empty = (int) (state >>> table.emptyShift);
+                for (int from = empty - 1; from <= empty + 1; from += 2) {  // A tile moves from a neighboring line
+                    if (from < 0 || from >= lines) {
+                        continue;
+                    }
+                    for (int goalLine = 0; goalLine < lines; goalLine++) {
+                        if (table.count(state, from, goalLine) == 0) {
+                            continue;
+                        }
+                        long next = state;
+                        if (goalLine < lines - 1) {
+                            next += (1L << table.shift(empty, goalLine)) - (1L << table.shift(from, goalLine));
+                        }
+                        next = next & ~(-1L << table.emptyShift) | (long) from << table.emptyShift;
+                        if (table.distances.contains(next)) {
+                            continue;
+                        }
+                        if (tail == MAX_STATES) {
+                            return UNSUPPORTED;
+                        }
+                        if (tail == queue.length) {
+                            queue = Arrays.copyOf(queue, Math.min(queue.length * 2, MAX_STATES));
+                        }
+                        table.distances.put(next, distance + 1);
+                        queue[tail++] = next;
+                    }
+                }
+            }
+            return table;
+        }
+    }
+}